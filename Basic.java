@@ -1,19 +1,128 @@
+import Compiler.BytecodeCompiler;
+import Compiler.JarCompiler;
+import Compiler.Program;
+import Compiler.ProgramCache;
+import Interpreter.BufferedInput;
+import Interpreter.BufferedOutput;
+import Interpreter.ClosureEngine;
+import Interpreter.DataFile;
+import Interpreter.DataSource;
+import Interpreter.Engine;
+import Interpreter.HiddenClassEngine;
 import Interpreter.Interpreter;
+import Interpreter.OutputSink;
+import Interpreter.VirtualMachine;
+import Lexer.BufferedTokenSource;
+import Lexer.CodeHandler;
 import Lexer.Lexer;
+import Lexer.ParallelLexer;
+import Parser.ConstantFolder;
+import Parser.Node.StatementListNode;
 import Parser.Parser;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
 public class Basic {
     public static void main(String[] args) throws Exception {
-        // We only are allowing 1 BASIC document to be lexed, therefore anymore or less should throw an error
-        if(args.length != 1)
+        // --jar output file compiles the program into a jar that runs it on its own, instead of running it
+        if(args.length == 3 && args[0].equals("--jar")) {
+            new JarCompiler().compile(parse(args[2], null), Path.of(args[1]));
+            return;
+        }
+
+        // We only are allowing 1 BASIC document to be lexed, optionally preceded by the engine that should run it.
+        // Anymore or less should throw an error
+        if(args.length != 1 && args.length != 2)
             throw new IllegalArgumentException("Incorrect amount of arguments");
+        String fileName = args[args.length - 1];
+        String engineName = args.length == 2 ? args[0] : "--vm";
+
+        DataSource data = data();
+        // GOSUBs nested deeper than -Dbasic.maxDepth stop the program on every engine, and so do FOR loops on the
+        // Interpreter
+        int maxDepth = Integer.getInteger("basic.maxDepth", Interpreter.MAX_DEPTH);
+        Engine engine = switch(engineName) {
+            case "--vm" -> new VirtualMachine(compile(fileName), maxDepth, output(), new BufferedInput(), data);
+            case "--closures" -> new ClosureEngine(parse(fileName, null), maxDepth, output(), new BufferedInput(), data);
+            case "--jit" -> new HiddenClassEngine(parse(fileName, null), maxDepth, output(), new BufferedInput(),
+                    data);
+            // the tree walker, kept as the reference engine. Labels and loops that run more often than
+            // -Dbasic.compileThreshold times get compiled into closures
+            case "--interpreter" -> new Interpreter(parse(fileName, null),
+                    Integer.getInteger("basic.compileThreshold", Interpreter.COMPILE_THRESHOLD), maxDepth, output(),
+                    new BufferedInput(), data);
+            default -> throw new IllegalArgumentException("Unknown engine " + engineName);
+        };
+        engine.run();
+    }
+
+    // What a program prints is buffered and written out when it stops. -Dbasic.flush picks when else it is written:
+    // "input" (the default) every 64K and before each INPUT, "end" only when the buffer fills up, a number of bytes
+    // every time that many are buffered
+    private static OutputSink output() {
+        String flush = System.getProperty("basic.flush", "input");
+        return switch(flush) {
+            case "input" -> new BufferedOutput();
+            case "end" -> new BufferedOutput(null, BufferedOutput.CAPACITY, false);
+            default -> new BufferedOutput(null, Integer.parseInt(flush), false);
+        };
+    }
 
-        var lexer = new Lexer();
-        var list = lexer.lex(args[0]);
+    // -Dbasic.data names a file of more DATA values, which READ goes on to once the program's own DATA runs out
+    private static DataSource data() throws IOException {
+        String file = System.getProperty("basic.data");
+        return file != null ? new DataFile(Path.of(file)) : null;
+    }
+
+    // Compiled programs are cached on disk, in the directory given by -Dbasic.cache (~/.cache/basic unless it is set,
+    // "off" turns the cache off). A file that was run before goes straight to the VM without being lexed or parsed
+    private static Program compile(String fileName) throws IOException {
+        String directory = System.getProperty("basic.cache",
+                Path.of(System.getProperty("user.home"), ".cache", "basic").toString());
+        if(directory.equals("off"))
+            return new BytecodeCompiler().compile(parse(fileName, null));
+
+        var cache = new ProgramCache(Path.of(directory));
+        String key = cache.key(Path.of(fileName));
+        var cached = cache.load(key);
+        if(cached != null) {
+            System.out.print(cached.warnings());
+            return cached.program();
+        }
 
-        var parse = new Parser(list).parse();
+        var warnings = new StringBuilder(); // kept so a cache hit can print them again
+        StatementListNode parse;
+        try {
+            parse = parse(fileName, warnings);
+        } finally {
+            System.out.print(warnings);
+        }
+        var program = new BytecodeCompiler().compile(parse);
+        cache.store(key, program, warnings.toString());
+        return program;
+    }
+
+    // The Parser pulls tokens as the Lexer makes them, with the lexing done on a thread of its own when there is a core
+    // to spare. Files big enough for lexing to dominate are lexed up front in parallel instead. Messages about
+    // unrecognized characters go to warnings if it isn't null
+    private static StatementListNode parse(String fileName, StringBuilder warnings) throws IOException {
+        var file = CodeHandler.open(fileName);
+        boolean multicore = Runtime.getRuntime().availableProcessors() > 1;
+        if(file.getSource().length() > ParallelLexer.THRESHOLD && multicore)
+            return parse(new Parser(new ParallelLexer(ForkJoinPool.commonPool()).lex(file, warnings)));
+        var tokens = new Lexer(warnings).stream(file);
+        if(!multicore)
+            return parse(new Parser(tokens));
+        try(var buffered = new BufferedTokenSource(tokens)) { // stops the lexer thread if the Parser gives up early
+            return parse(new Parser(buffered));
+        }
+    }
 
-        var interpreter = new Interpreter(parse);
-        interpreter.run();
+    private static StatementListNode parse(Parser parser) {
+        var parse = parser.parse();
+        new ConstantFolder().fold(parse);
+        return parse;
     }
 }
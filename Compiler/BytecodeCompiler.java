@@ -0,0 +1,538 @@
+package Compiler;
+
+import Parser.Linker;
+import Parser.Node.*;
+import Parser.SlotResolver;
+import Parser.TypeChecker;
+
+import java.util.*;
+
+//Lowers the linked AST into a Program for the VirtualMachine. Every label, FOR and NEXT the Linker connected becomes a
+//jump to a fixed position in the code, and the type of every variable is settled here instead of at runtime.
+public class BytecodeCompiler {
+
+    //The typed stacks, in the same order as Type
+    private static final int INT = 0, FLOAT = 1, STRING = 2;
+
+    private int[] code = new int[256];
+    private int size = 0;
+
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final HashMap<String, Integer> stringIndex = new HashMap<>();
+
+    //Where each label's statement ended up in the code
+    private final HashMap<LabeledStatementNode, Integer> labelAddresses = new HashMap<>();
+
+    //Positions of CALL operands waiting for a label's address, paired with the label
+    private final LinkedList<Map.Entry<Integer, LabeledStatementNode>> callFixups = new LinkedList<>();
+
+    //Where each FOR loop starts and where the code after its NEXT starts
+    private final HashMap<ForNode, Integer> loopHeads = new HashMap<>();
+    private final HashMap<NextNode, Integer> loopExits = new HashMap<>();
+
+    //Positions of FOR exit operands and NEXT jump operands, patched once every loop has been placed
+    private final LinkedList<Map.Entry<Integer, ForNode>> exitFixups = new LinkedList<>();
+    private final LinkedList<Map.Entry<Integer, NextNode>> nextFixups = new LinkedList<>();
+
+    //Where each WHILE tests its condition and where the code after each label of the main program starts, with the
+    //positions of the jumps to them
+    private final HashMap<WhileNode, Integer> whileHeads = new HashMap<>();
+    private final HashMap<LabeledStatementNode, Integer> labelExits = new HashMap<>();
+    private final LinkedList<Map.Entry<Integer, WhileNode>> whileFixups = new LinkedList<>();
+    private final LinkedList<Map.Entry<Integer, LabeledStatementNode>> labelExitFixups = new LinkedList<>();
+
+    //Current and deepest size of each typed stack while compiling expressions
+    private final int[] depth = new int[3];
+    private final int[] maxDepth = new int[3];
+
+    public Program compile(StatementListNode statementList) {
+        new Linker().link(statementList);
+        new TypeChecker().check(statementList);
+        String[] variables = new SlotResolver().resolve(statementList);
+        Object[] data = dataPool(statementList);
+
+        for(Node statement : statementList.getList()) {
+            compileStatement((StatementNode) statement);
+        }
+        emit(OpCode.HALT);
+
+        //A label's statement runs as its own little subroutine, so it is placed after the main program
+        for(Node search : statementList.getList()) {
+            if(search instanceof LabeledStatementNode) {
+                labelAddresses.put((LabeledStatementNode) search, size);
+                if(((LabeledStatementNode) search).getStatement() != null)
+                    compileStatement(((LabeledStatementNode) search).getStatement());
+                emit(OpCode.RET);
+            }
+        }
+
+        //A FOR without a NEXT exits onto an error, just like the Interpreter fails when the loop finishes
+        int missingNext = size;
+        fail("FOR without NEXT");
+
+        for(var fixup : callFixups) {
+            code[fixup.getKey()] = labelAddresses.get(fixup.getValue());
+        }
+        for(var fixup : exitFixups) {
+            var closingNext = fixup.getValue().getClosingNext();
+            code[fixup.getKey()] = closingNext != null ? loopExits.get(closingNext) : missingNext;
+        }
+        for(var fixup : nextFixups) {
+            code[fixup.getKey()] = loopHeads.get(fixup.getValue().getLoop());
+        }
+        for(var fixup : whileFixups) {
+            code[fixup.getKey()] = whileHeads.get(fixup.getValue());
+        }
+        for(var fixup : labelExitFixups) {
+            code[fixup.getKey()] = labelExits.get(fixup.getValue());
+        }
+
+        return new Program(Arrays.copyOf(code, size), strings.toArray(new String[0]), data,
+                variables, maxDepth[INT], maxDepth[FLOAT], maxDepth[STRING]);
+    }
+
+    //The values of all the DATA statements in the order they are written, labeled ones included
+    private Object[] dataPool(StatementListNode statementList) {
+        var data = new ArrayList<Object>();
+        for(Node search : statementList.getList()) {
+            if(search instanceof LabeledStatementNode)
+                search = ((LabeledStatementNode) search).getStatement();
+            if(!(search instanceof DataNode))
+                continue;
+            for(Node value : ((DataNode) search).getValue()) {
+                if(value instanceof IntegerNode) {
+                    data.add(((IntegerNode) value).getValue());
+                } else if(value instanceof FloatNode) {
+                    data.add(((FloatNode) value).getValue());
+                } else {
+                    data.add(((StringNode) value).getValue());
+                }
+            }
+        }
+        return data.toArray();
+    }
+
+    private void compileStatement(StatementNode node) {
+        if(node instanceof ReadNode) {
+            compileRead((ReadNode) node);
+        } else if(node instanceof AssignmentNode) {
+            compileAssignment((AssignmentNode) node);
+        } else if(node instanceof ArrayAssignmentNode) {
+            compileArrayAssignment((ArrayAssignmentNode) node);
+        } else if(node instanceof DimNode) {
+            compileDim((DimNode) node);
+        } else if(node instanceof InputNode) {
+            compileInput((InputNode) node);
+        } else if(node instanceof PrintNode) {
+            compilePrint((PrintNode) node);
+        } else if(node instanceof IfNode) {
+            compileIf((IfNode) node);
+        } else if(node instanceof ForNode) {
+            compileFor((ForNode) node);
+        } else if(node instanceof GosubNode) {
+            callFixups.add(Map.entry(emit(OpCode.CALL, 0), ((GosubNode) node).getTarget()));
+        } else if(node instanceof NextNode) {
+            compileNext((NextNode) node);
+        } else if(node instanceof WhileNode) {
+            compileWhile((WhileNode) node);
+        } else if(node instanceof LabeledStatementNode) { //only the main program has labels, the place they are at
+            if(((LabeledStatementNode) node).getLoop() != null)
+                whileFixups.add(Map.entry(emit(OpCode.JUMP, 0), ((LabeledStatementNode) node).getLoop()));
+            else
+                fail("Unexpected statement");
+            labelExits.put((LabeledStatementNode) node, size);
+        } else if(node instanceof ReturnNode) {
+            emit(OpCode.RET);
+        } else if(node instanceof EndNode) {
+            emit(OpCode.HALT);
+        } else if(node instanceof RestoreNode) {
+            emit(OpCode.RESTORE);
+        } else if(node instanceof DataNode) { //its values are in the Program already, running past it does nothing
+        } else {
+            fail("Unexpected statement");
+        }
+    }
+
+    private void compileRead(ReadNode node) {
+        for(VariableNode variable : node.getValue()) {
+            switch(variableType(variable)) {
+                case INT -> emit(OpCode.READ_INT, variable.getSlot());
+                case FLOAT -> emit(OpCode.READ_FLOAT, variable.getSlot());
+                default -> emit(OpCode.READ_STRING, variable.getSlot());
+            }
+        }
+    }
+
+    private void compileAssignment(AssignmentNode node) {
+        var variable = node.getVariable();
+        switch(variableType(variable)) {
+            case INT -> {
+                compileInt(node.getExpression());
+                emit(OpCode.STORE_INT, variable.getSlot());
+                depth[INT]--;
+            }
+            case FLOAT -> {
+                compileFloat(node.getExpression());
+                emit(OpCode.STORE_FLOAT, variable.getSlot());
+                depth[FLOAT]--;
+            }
+            default -> {
+                compileString(node.getExpression());
+                emit(OpCode.STORE_STRING, variable.getSlot());
+                depth[STRING]--;
+            }
+        }
+    }
+
+    //The value goes on its stack before the offset, so it is worked out first like in the Interpreter
+    private void compileArrayAssignment(ArrayAssignmentNode node) {
+        var element = node.getElement();
+        switch(element.getType()) {
+            case INT -> {
+                compileInt(node.getExpression());
+                compileOffset(element);
+                emit(OpCode.STORE_INT_ELEMENT, element.getSlot());
+                depth[INT] -= 2;
+            }
+            case FLOAT -> {
+                compileFloat(node.getExpression());
+                compileOffset(element);
+                emit(OpCode.STORE_FLOAT_ELEMENT, element.getSlot());
+                depth[FLOAT]--;
+                depth[INT]--;
+            }
+            default -> {
+                compileString(node.getExpression());
+                compileOffset(element);
+                emit(OpCode.STORE_STRING_ELEMENT, element.getSlot());
+                depth[STRING]--;
+                depth[INT]--;
+            }
+        }
+    }
+
+    private void compileDim(DimNode node) {
+        for(ArrayNode array : node.getArrays()) {
+            for(Node size : array.getIndices()) {
+                compileInt(size);
+            }
+            emit(OpCode.DIM, array.getSlot(), array.getIndices().size());
+            depth[INT] -= array.getIndices().size();
+        }
+    }
+
+    //Leaves the element's offset on the int stack, each index is checked right after it is worked out
+    private void compileOffset(ArrayNode node) {
+        int dimension = 0;
+        for(Node index : node.getIndices()) {
+            compileInt(index);
+            emit(OpCode.INDEX, node.getSlot(), dimension);
+            if(dimension++ > 0) //it went into the offset
+                depth[INT]--;
+        }
+    }
+
+    private void compileInput(InputNode node) {
+        for(Node input : node.getValue()) {
+            if(input instanceof StringNode) {
+                emit(OpCode.INPUT_PROMPT, string(((StringNode) input).getValue()));
+            } else if(input instanceof VariableNode) {
+                switch(variableType((VariableNode) input)) {
+                    case INT -> emit(OpCode.INPUT_INT, ((VariableNode) input).getSlot());
+                    case FLOAT -> emit(OpCode.INPUT_FLOAT, ((VariableNode) input).getSlot());
+                    default -> emit(OpCode.INPUT_STRING, ((VariableNode) input).getSlot());
+                }
+            } else {
+                fail("Invalid input variables");
+            }
+        }
+    }
+
+    private void compilePrint(PrintNode node) {
+        for(Node print : node.getList()) {
+            if(print instanceof StringNode) {
+                emit(OpCode.PRINT_CONST, string(((StringNode) print).getValue()));
+            } else if(print instanceof VariableNode) {
+                switch(variableType((VariableNode) print)) {
+                    case INT -> emit(OpCode.PRINT_INT, ((VariableNode) print).getSlot());
+                    case FLOAT -> emit(OpCode.PRINT_FLOAT, ((VariableNode) print).getSlot());
+                    default -> emit(OpCode.PRINT_STRING, ((VariableNode) print).getSlot());
+                }
+            } else if(print instanceof ArrayNode) {
+                compileOffset((ArrayNode) print);
+                switch(print.getType()) {
+                    case INT -> emit(OpCode.PRINT_INT_ELEMENT, ((ArrayNode) print).getSlot());
+                    case FLOAT -> emit(OpCode.PRINT_FLOAT_ELEMENT, ((ArrayNode) print).getSlot());
+                    default -> emit(OpCode.PRINT_STRING_ELEMENT, ((ArrayNode) print).getSlot());
+                }
+                depth[INT]--;
+            }
+        }
+    }
+
+    //IF runs the label's statement when the condition holds and then carries on with the next line
+    private void compileIf(IfNode node) {
+        if(node.getCondition() == null) {
+            fail("Invalid comparison operator");
+            return;
+        }
+        var condition = node.getCondition();
+        if(condition.getLeft() instanceof IntegerNode && condition.getRight() instanceof IntegerNode) {
+            //Usually what the ConstantFolder leaves of a condition that doesn't depend on anything, decided right here
+            int left = ((IntegerNode) condition.getLeft()).getValue(), right = ((IntegerNode) condition.getRight()).getValue();
+            Boolean holds = switch(condition.getOperator()) {
+                case LESSTHAN -> left < right;
+                case LESSTHANEQUALS -> left <= right;
+                case GREATERTHAN -> left > right;
+                case GREATERTHANEQUALS -> left >= right;
+                case NOTEQUALS -> left != right;
+                default -> null;
+            };
+            if(holds != null) {
+                if(holds)
+                    callFixups.add(Map.entry(emit(OpCode.CALL, 0), node.getTarget()));
+                return;
+            }
+        }
+        compileCondition(condition);
+        int skip = emit(OpCode.JUMP_FALSE, 0);
+        callFixups.add(Map.entry(emit(OpCode.CALL, 0), node.getTarget()));
+        code[skip] = size;
+    }
+
+    //A FOR loop turns into
+    //         <end> STORE_INT bounds    -- only for bounds that aren't literals, worked out once when the FOR is
+    //         <step> STORE_INT bounds+1    reached and never again on the way back from the NEXT
+    //  head:  FOR_STEP slot step test   -- after the first pass the variable only gets stepped
+    //         <initial assignment>
+    //  test:  FOR_TEST slot end exit    -- FOR_TEST_DOWN when the step is negative
+    //         <loop body>
+    //         JUMP head                 -- the NEXT
+    //  exit:
+    //with FOR_STEP_SLOT and FOR_TEST_SLOT taking the bounds from their slots instead
+    private void compileFor(ForNode node) {
+        var variable = node.getInitialize().getVariable();
+        int slot = variable.getSlot();
+        if(node.isCounted()) {
+            int increment = ((IntegerNode) node.getIncrement()).getValue();
+            loopHeads.put(node, size);
+            int test = emit(OpCode.FOR_STEP, slot, increment, 0);
+            compileAssignment(node.getInitialize());
+            code[test] = size;
+            int exit = increment < 0 ? OpCode.FOR_TEST_DOWN : OpCode.FOR_TEST;
+            exitFixups.add(Map.entry(emit(exit, slot, ((IntegerNode) node.getEnd()).getValue(), 0), node));
+        } else {
+            int bounds = node.getBoundSlot();
+            compileInt(node.getEnd());
+            emit(OpCode.STORE_INT, bounds);
+            depth[INT]--;
+            compileInt(node.getIncrement());
+            emit(OpCode.STORE_INT, bounds + 1);
+            depth[INT]--;
+            loopHeads.put(node, size);
+            int test = emit(OpCode.FOR_STEP_SLOT, slot, bounds, 0);
+            compileAssignment(node.getInitialize());
+            code[test] = size;
+            exitFixups.add(Map.entry(emit(OpCode.FOR_TEST_SLOT, slot, bounds, 0), node));
+        }
+    }
+
+    //A WHILE loop turns into
+    //  head:  <condition>
+    //         JUMP_FALSE exit
+    //         <loop body>
+    //         JUMP head                 -- the label that closes the loop
+    //  exit:
+    private void compileWhile(WhileNode node) {
+        whileHeads.put(node, size);
+        compileCondition(node.getCondition());
+        labelExitFixups.add(Map.entry(emit(OpCode.JUMP_FALSE, 0), node.getEnd()));
+    }
+
+    private void compileNext(NextNode node) {
+        if(node.getLoop() == null) {
+            fail("NEXT without FOR");
+            return;
+        }
+        nextFixups.add(Map.entry(emit(OpCode.JUMP, 0), node));
+        loopExits.put(node, size);
+    }
+
+    //Comparisons are always done on integers
+    private void compileCondition(BooleanNode node) {
+        compileInt(node.getLeft());
+        compileInt(node.getRight());
+        switch(node.getOperator()) {
+            case LESSTHAN -> emit(OpCode.LT_INT);
+            case LESSTHANEQUALS -> emit(OpCode.LE_INT);
+            case GREATERTHAN -> emit(OpCode.GT_INT);
+            case GREATERTHANEQUALS -> emit(OpCode.GE_INT);
+            case NOTEQUALS -> emit(OpCode.NE_INT);
+            default -> fail("Invalid comparison operator");
+        }
+        depth[INT] -= 2;
+        push(INT); //the result of the comparison, JUMP_FALSE pops it again
+        depth[INT]--;
+    }
+
+    /*
+        The expression compilers mirror evaluateInt, evaluateFloat and evaluateString in the Interpreter. The TypeChecker
+        has already rejected anything of the wrong type, the FAILs left are for what can only go wrong at runtime.
+     */
+
+    private void compileInt(Node node) {
+        if(node instanceof IntegerNode) {
+            emit(OpCode.PUSH_INT, ((IntegerNode) node).getValue());
+        } else if(node instanceof MathOpNode) {
+            compileInt(((MathOpNode) node).getLeft());
+            compileInt(((MathOpNode) node).getRight());
+            mathOp((MathOpNode) node, OpCode.ADD_INT);
+            depth[INT] -= 2;
+        } else if(node instanceof VariableNode) {
+            if(variableType((VariableNode) node) == INT) {
+                emit(OpCode.LOAD_INT, ((VariableNode) node).getSlot());
+            } else {
+                fail("Use of unassigned variable"); //the name can never be in the int table
+            }
+        } else if(node instanceof ArrayNode) {
+            compileOffset((ArrayNode) node);
+            emit(OpCode.LOAD_INT_ELEMENT, ((ArrayNode) node).getSlot());
+            depth[INT]--; //the value takes the offset's place
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("random")) {
+            emit(OpCode.RANDOM);
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val")) {
+            compileString(((FunctionNode) node).getParameters().get(0));
+            emit(OpCode.VAL);
+            depth[STRING]--;
+        } else {
+            fail("Invalid integer variable assignment");
+        }
+        push(INT);
+    }
+
+    private void compileFloat(Node node) {
+        if(node instanceof FloatNode) {
+            emit(OpCode.PUSH_FLOAT, Float.floatToIntBits(((FloatNode) node).getValue()));
+        } else if(node instanceof MathOpNode) {
+            compileFloat(((MathOpNode) node).getLeft());
+            compileFloat(((MathOpNode) node).getRight());
+            mathOp((MathOpNode) node, OpCode.ADD_FLOAT);
+            depth[FLOAT] -= 2;
+        } else if(node instanceof VariableNode) {
+            if(variableType((VariableNode) node) == FLOAT) {
+                emit(OpCode.LOAD_FLOAT, ((VariableNode) node).getSlot());
+            } else {
+                fail("Use of unassigned variable");
+            }
+        } else if(node instanceof ArrayNode) {
+            compileOffset((ArrayNode) node);
+            emit(OpCode.LOAD_FLOAT_ELEMENT, ((ArrayNode) node).getSlot());
+            depth[INT]--;
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val%")) {
+            compileString(((FunctionNode) node).getParameters().get(0));
+            emit(OpCode.VAL_FLOAT);
+            depth[STRING]--;
+        } else {
+            fail("Invalid float variable assignment");
+        }
+        push(FLOAT);
+    }
+
+    private void compileString(Node node) {
+        if(node instanceof StringNode) {
+            emit(OpCode.PUSH_STRING, string(((StringNode) node).getValue()));
+        } else if(node instanceof VariableNode) {
+            if(variableType((VariableNode) node) == STRING) {
+                emit(OpCode.LOAD_STRING, ((VariableNode) node).getSlot());
+            } else {
+                fail("Use of unassigned variable");
+            }
+        } else if(node instanceof ArrayNode) {
+            compileOffset((ArrayNode) node);
+            emit(OpCode.LOAD_STRING_ELEMENT, ((ArrayNode) node).getSlot());
+            depth[INT]--;
+        } else if(node instanceof FunctionNode) {
+            compileStringFunction((FunctionNode) node);
+        } else {
+            fail("Invalid string variable assignment");
+        }
+        push(STRING);
+    }
+
+    private void compileStringFunction(FunctionNode node) {
+        var params = node.getParameters();
+        switch(node.getFunctionName()) {
+            case "left$", "right$" -> {
+                compileString(params.get(0));
+                compileInt(params.get(1));
+                emit(node.getFunctionName().equals("left$") ? OpCode.LEFT : OpCode.RIGHT);
+                depth[STRING]--;
+                depth[INT]--;
+            }
+            case "mid$" -> {
+                compileString(params.get(0));
+                compileInt(params.get(1));
+                compileInt(params.get(2));
+                emit(OpCode.MID);
+                depth[STRING]--;
+                depth[INT] -= 2;
+            }
+            case "num$" -> {
+                Node param = params.get(0);
+                if(param.getType() == Type.INT) {
+                    compileInt(param);
+                    emit(OpCode.NUM_INT);
+                    depth[INT]--;
+                } else {
+                    compileFloat(param);
+                    emit(OpCode.NUM_FLOAT);
+                    depth[FLOAT]--;
+                }
+            }
+            default -> fail("Invalid string variable assignment");
+        }
+    }
+
+    //The int and float arithmetic opcodes are laid out in the same order, so only the first one is needed
+    private void mathOp(MathOpNode node, int add) {
+        switch(node.getOperation()) {
+            case ADD -> emit(add);
+            case SUBTRACT -> emit(add + 1);
+            case MULTIPLY -> emit(add + 2);
+            case DIVIDE -> emit(add + 3);
+            default -> fail("Invalid math operator");
+        }
+    }
+
+    //The stack a variable's values go on, the TypeChecker already gave it its type
+    private static int variableType(VariableNode node) {
+        return node.getType().ordinal();
+    }
+
+    private int string(String value) {
+        return stringIndex.computeIfAbsent(value, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    private void fail(String message) {
+        emit(OpCode.FAIL, string(message));
+    }
+
+    private void push(int type) {
+        depth[type]++;
+        maxDepth[type] = Math.max(maxDepth[type], depth[type]);
+    }
+
+    //Appends an instruction and returns the position of its last operand, which is what jumps need to patch later
+    private int emit(int opcode, int... operands) {
+        if(size + operands.length + 1 > code.length)
+            code = Arrays.copyOf(code, code.length * 2 + operands.length);
+        code[size++] = opcode;
+        for(int operand : operands) {
+            code[size++] = operand;
+        }
+        return size - 1;
+    }
+}
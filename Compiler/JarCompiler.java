@@ -0,0 +1,49 @@
+package Compiler;
+
+import Parser.Node.StatementListNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+//Compiles a program ahead of time into a jar that runs it with java -jar. The jar holds nothing but the class the
+//JavaEmitter makes of the program, so running it doesn't need the Lexer, the Parser or anything else of the interpreter.
+public class JarCompiler {
+
+    public static final String MAIN_CLASS = "BasicProgram";
+
+    public void compile(StatementListNode statementList, Path jar) throws IOException {
+        String source;
+        try {
+            source = new JavaEmitter().emit(statementList, null, MAIN_CLASS);
+        } catch(UnsupportedOperationException e) { //there is no Interpreter in the jar to fall back to
+            throw new IllegalArgumentException("Program can't be compiled to a jar: " + e.getMessage(), e);
+        }
+        byte[] classFile = new JavaSourceCompiler().compile(MAIN_CLASS, source);
+
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN_CLASS);
+
+        //Written to the side and moved into place, so a failed compile never leaves half a jar behind
+        var directory = jar.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, jar.getFileName().toString(), ".tmp");
+        try {
+            try(OutputStream file = Files.newOutputStream(temporary); var out = new JarOutputStream(file, manifest)) {
+                out.putNextEntry(new JarEntry(MAIN_CLASS + ".class"));
+                out.write(classFile);
+                out.closeEntry();
+            }
+            Files.move(temporary, jar, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
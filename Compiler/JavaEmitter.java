@@ -0,0 +1,670 @@
+package Compiler;
+
+import Parser.Linker;
+import Parser.Node.*;
+import Parser.SlotResolver;
+import Parser.TypeChecker;
+
+import java.util.*;
+
+//Translates a program into the source of a Java class that runs it. Variables become fields, FOR loops become while
+//loops and every label's statement becomes a method that IF and GOSUB call, so the JIT sees the BASIC program as
+//ordinary Java. Its run() behaves the same as the Interpreter. A class of its own only uses java.base and its main()
+//runs it, a class for an engine writes to the engine's OutputSink instead.
+//Programs whose control flow doesn't fit Java's are refused with an UnsupportedOperationException.
+public class JavaEmitter {
+
+    private final StringBuilder out = new StringBuilder();
+    private int indent = 0;
+
+    private String[] variables;
+
+    //The values of every DATA statement, labeled ones included
+    private final List<Node> data = new ArrayList<>();
+
+    //The method each label's statement is emitted as
+    private final HashMap<LabeledStatementNode, String> labelMethods = new HashMap<>();
+
+    //Where every NEXT and label of the main program is
+    private final HashMap<NextNode, Integer> nextIndex = new HashMap<>();
+    private final HashMap<LabeledStatementNode, Integer> labelIndex = new HashMap<>();
+
+    //Whether an END can be reached inside a label's method, then every call has to check if the program is over
+    private boolean endInLabel = false;
+
+    //Whether the class runs on its own, with a main() and output of its own, or is handed an engine's
+    private boolean standalone;
+
+    //How deep GOSUBs nest at most, the main program's and then the labels' each calling the next
+    private int callDepth = 0;
+
+    public String emit(StatementListNode statementList, String packageName, String className) {
+        standalone = true;
+        return emitClass(statementList, packageName, className);
+    }
+
+    //The class is in the Interpreter package, so it can name OutputSink and InputSource. Its constructor takes the ones
+    //to use. Programs whose GOSUBs can nest deeper than maxDepth are refused, the engine's limit can't be checked
+    //in a method call
+    public String emitForEngine(StatementListNode statementList, String className, int maxDepth) {
+        standalone = false;
+        String source = emitClass(statementList, "Interpreter", className);
+        if(callDepth > maxDepth)
+            throw new UnsupportedOperationException("GOSUBs nest deeper than " + maxDepth);
+        return source;
+    }
+
+    private String emitClass(StatementListNode statementList, String packageName, String className) {
+        new Linker().link(statementList);
+        new TypeChecker().check(statementList);
+        variables = new SlotResolver().resolve(statementList);
+        var list = statementList.getList();
+        for(Node search : list) {
+            if(search instanceof LabeledStatementNode)
+                search = ((LabeledStatementNode) search).getStatement();
+            if(search instanceof DataNode)
+                data.addAll(((DataNode) search).getValue());
+        }
+        for(int i = 0; i < list.size(); i++) {
+            if(list.get(i) instanceof NextNode)
+                nextIndex.put((NextNode) list.get(i), i);
+            else if(list.get(i) instanceof LabeledStatementNode) {
+                labelIndex.put((LabeledStatementNode) list.get(i), i);
+                labelMethods.put((LabeledStatementNode) list.get(i), "label" + labelMethods.size());
+            }
+        }
+        checkLabels();
+
+        if(packageName != null && !packageName.isEmpty())
+            line("package " + packageName + ";").line("");
+        line("public final class " + className + " implements Runnable {").indent++;
+        line("");
+        for(int slot = 0; slot < variables.length; slot++) {
+            if(variables[slot].endsWith("()")) { //an array, with the size of each of its dimensions
+                switch(Type.ofVariable(variables[slot])) {
+                    case INT -> line("private int[] v" + slot + ";");
+                    case FLOAT -> line("private float[] v" + slot + ";");
+                    default -> line("private String[] v" + slot + ";");
+                }
+                line("private int[] v" + slot + "Dims;");
+                continue;
+            }
+            switch(Type.ofVariable(variables[slot])) {
+                case INT -> line("private int v" + slot + ";").line("private boolean v" + slot + "Set;");
+                case FLOAT -> line("private float v" + slot + ";").line("private boolean v" + slot + "Set;");
+                default -> line("private String v" + slot + ";");
+            }
+        }
+        dataPool();
+        if(endInLabel)
+            line("private boolean halted;");
+
+        if(standalone) {
+            line("private final StringBuilder printed = new StringBuilder();");
+            line("private java.io.InputStream typed;");
+            line("private int typedByte = -2;");
+            line("private int typedLine = 1;");
+            line("").line("public static void main(String[] args) {").indent++;
+            line("new " + className + "().run();").indent--;
+            line("}");
+        } else {
+            line("private final OutputSink output;");
+            line("private final InputSource input;");
+            line("").line("public " + className + "(OutputSink output, InputSource input) {").indent++;
+            line("this.output = output;");
+            line("this.input = input;").indent--;
+            line("}");
+        }
+
+        line("").line("@Override").line("public void run() {").indent++;
+        line("try {").indent++;
+        block(list, 0, list.size());
+        indent--;
+        line("} finally {").indent++;
+        line("flush(); //what was printed before an error still shows up").indent--;
+        line("}").indent--;
+        line("}");
+
+        for(Node search : list) {
+            if(search instanceof LabeledStatementNode) {
+                line("").line("private void " + labelMethods.get(search) + "() {").indent++;
+                if(((LabeledStatementNode) search).getStatement() != null)
+                    statement(((LabeledStatementNode) search).getStatement());
+                indent--;
+                line("}");
+            }
+        }
+        builtIns();
+        output();
+        input();
+        indent--;
+        line("}");
+        return out.toString();
+    }
+
+    //A label's statement runs as a method, which only works if it can't leave it any other way than returning
+    private void checkLabels() {
+        var calls = new HashMap<LabeledStatementNode, LabeledStatementNode>();
+        for(var label : labelMethods.keySet()) {
+            var statement = label.getStatement();
+            if(statement instanceof ForNode || statement instanceof NextNode || statement instanceof WhileNode
+                    || statement instanceof ReturnNode)
+                throw new UnsupportedOperationException("Loops and RETURN can't be a label's statement");
+            if(statement instanceof EndNode)
+                endInLabel = true;
+            if(statement instanceof IfNode)
+                calls.put(label, ((IfNode) statement).getTarget());
+            else if(statement instanceof GosubNode)
+                calls.put(label, ((GosubNode) statement).getTarget());
+        }
+        //Each label calls at most one other, so a cycle is found by following the calls until they stop
+        for(var label : calls.keySet()) {
+            var reached = new HashSet<LabeledStatementNode>();
+            for(var at = label; at != null; at = calls.get(at)) {
+                if(!reached.add(at))
+                    throw new UnsupportedOperationException("Labels that call themselves can't be methods");
+            }
+            callDepth = Math.max(callDepth, reached.size());
+        }
+        if(callDepth == 0 && !labelMethods.isEmpty())
+            callDepth = 1;
+    }
+
+    //Emits the statements of the main program from start up to end. A FOR and its NEXT, or a WHILE and the label that
+    //closes it, become a while loop around the statements between them
+    private void block(List<Node> list, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(list.get(i) instanceof ForNode && ((ForNode) list.get(i)).getClosingNext() != null) {
+                var loop = (ForNode) list.get(i);
+                int next = nextIndex.get(loop.getClosingNext());
+                if(next >= end)
+                    throw new UnsupportedOperationException("Loops that overlap can't be nested Java loops");
+                String variable = "v" + loop.getInitialize().getVariable().getSlot();
+                forHead(loop);
+                line("while(" + looping(loop) + ") {").indent++;
+                block(list, i + 1, next);
+                line(variable + " += " + increment(loop) + ";").indent--;
+                line("}");
+                i = next;
+            } else if(list.get(i) instanceof WhileNode) {
+                var loop = (WhileNode) list.get(i);
+                int close = labelIndex.get(loop.getEnd());
+                if(loop.getEnd().getLoop() != loop || close >= end)
+                    throw new UnsupportedOperationException("A WHILE has to be closed by its label after it");
+                line("while(" + condition(loop.getCondition()) + ") {").indent++;
+                block(list, i + 1, close);
+                indent--;
+                line("}");
+                i = close;
+            } else if(list.get(i) instanceof LabeledStatementNode) {
+                if(((LabeledStatementNode) list.get(i)).getLoop() != null)
+                    throw new UnsupportedOperationException("A WHILE has to be closed by its label after it");
+                fail("Unexpected statement"); //a label's statement only runs when it is called
+            } else {
+                statement((StatementNode) list.get(i));
+            }
+        }
+    }
+
+    //Bounds that aren't literals are worked out once, into their slots. Then the first pass runs the initial
+    //assignment, any pass after that, even one from another FOR on the same variable, only steps it
+    private void forHead(ForNode loop) {
+        if(!loop.isCounted()) {
+            line("v" + loop.getBoundSlot() + " = " + intExpression(loop.getEnd()) + ";");
+            line("v" + (loop.getBoundSlot() + 1) + " = " + intExpression(loop.getIncrement()) + ";");
+        }
+        String variable = "v" + loop.getInitialize().getVariable().getSlot();
+        line("if(" + variable + "Set) {").indent++;
+        line(variable + " += " + increment(loop) + ";").indent--;
+        line("} else {").indent++;
+        statement(loop.getInitialize());
+        indent--;
+        line("}");
+    }
+
+    private String increment(ForNode loop) {
+        return loop.isCounted() ? loop.getIncrement().toString() : "v" + (loop.getBoundSlot() + 1);
+    }
+
+    //Whether the loop runs another pass, a loop with a negative step counts down to its end
+    private String looping(ForNode loop) {
+        String variable = "v" + loop.getInitialize().getVariable().getSlot();
+        if(loop.isCounted()) {
+            boolean down = ((IntegerNode) loop.getIncrement()).getValue() < 0;
+            return variable + (down ? " > " : " < ") + loop.getEnd();
+        }
+        String end = "v" + loop.getBoundSlot();
+        return "(" + increment(loop) + " < 0 ? " + variable + " > " + end + " : " + variable + " < " + end + ")";
+    }
+
+    private void statement(StatementNode node) {
+        if(node instanceof AssignmentNode) {
+            var variable = ((AssignmentNode) node).getVariable();
+            var expression = ((AssignmentNode) node).getExpression();
+            String field = "v" + variable.getSlot();
+            switch(variable.getType()) {
+                case INT -> line(field + " = " + intExpression(expression) + ";").line(field + "Set = true;");
+                case FLOAT -> line(field + " = " + floatExpression(expression) + ";").line(field + "Set = true;");
+                default -> line(field + " = " + stringExpression(expression) + ";");
+            }
+        } else if(node instanceof ArrayAssignmentNode) { //the value is worked out before the indices
+            var element = ((ArrayAssignmentNode) node).getElement();
+            var expression = ((ArrayAssignmentNode) node).getExpression();
+            line("{").indent++;
+            switch(element.getType()) {
+                case INT -> line("int value = " + intExpression(expression) + ";");
+                case FLOAT -> line("float value = " + floatExpression(expression) + ";");
+                default -> line("String value = " + stringExpression(expression) + ";");
+            }
+            line(element(element) + " = value;").indent--;
+            line("}");
+        } else if(node instanceof DimNode) {
+            for(ArrayNode array : ((DimNode) node).getArrays()) {
+                String field = "v" + array.getSlot();
+                var sizes = new StringJoiner(", ");
+                array.getIndices().forEach(size -> sizes.add(intExpression(size)));
+                line("{").indent++;
+                line("int[] sizes = {" + sizes + "};");
+                switch(array.getType()) {
+                    case INT -> line(field + " = new int[length(sizes)];");
+                    case FLOAT -> line(field + " = new float[length(sizes)];");
+                    default -> line(field + " = new String[length(sizes)];")
+                            .line("java.util.Arrays.fill(" + field + ", \"\");");
+                }
+                line(field + "Dims = sizes;").indent--;
+                line("}");
+            }
+        } else if(node instanceof PrintNode) {
+            for(Node print : ((PrintNode) node).getList()) {
+                if(print instanceof StringNode) {
+                    line("println(" + literal(((StringNode) print).getValue()) + ");");
+                } else if(print instanceof ArrayNode) {
+                    line("println(" + element((ArrayNode) print) + ");");
+                } else if(print instanceof VariableNode) {
+                    String field = "v" + ((VariableNode) print).getSlot();
+                    String assigned = print.getType() == Type.STRING ? field + " != null" : field + "Set";
+                    line("if(!(" + assigned + ")) fail(" + literal(print + " not declared") + ");");
+                    line("println(" + field + ");");
+                }
+            }
+        } else if(node instanceof InputNode) {
+            input((InputNode) node);
+        } else if(node instanceof ReadNode) {
+            read((ReadNode) node);
+        } else if(node instanceof IfNode) {
+            line("if(" + condition(((IfNode) node).getCondition()) + ") {").indent++;
+            call(((IfNode) node).getTarget());
+            indent--;
+            line("}");
+        } else if(node instanceof GosubNode) {
+            call(((GosubNode) node).getTarget());
+        } else if(node instanceof ForNode) { //only a FOR without a NEXT gets here
+            forHead((ForNode) node);
+            line("if(!(" + looping((ForNode) node) + ")) fail(\"FOR without NEXT\");");
+        } else if(node instanceof NextNode) { //only a NEXT without a FOR gets here
+            fail("NEXT without FOR");
+        } else if(node instanceof ReturnNode) { //nothing in the main program runs as a subroutine
+            fail("RETURN without GOSUB");
+        } else if(node instanceof RestoreNode) {
+            line("dataPosition = 0;");
+        } else if(node instanceof DataNode) { //its values are in DATA already, running past it does nothing
+        } else if(node instanceof EndNode) {
+            if(endInLabel)
+                line("halted = true;");
+            line("if(true) return;"); //an if, so that javac doesn't reject the statements after it as unreachable
+        } else {
+            fail("Unexpected statement");
+        }
+    }
+
+    private void call(LabeledStatementNode label) {
+        line(labelMethods.get(label) + "();");
+        if(endInLabel)
+            line("if(halted) return;");
+    }
+
+    private void input(InputNode node) {
+        for(Node item : node.getValue()) {
+            if(item instanceof StringNode) {
+                line("print(" + literal(((StringNode) item).getValue()) + ");");
+            } else if(item instanceof VariableNode) {
+                line("beforeInput();");
+                String field = "v" + ((VariableNode) item).getSlot();
+                switch(item.getType()) {
+                    case INT -> line(field + " = readInt();").line(field + "Set = true;");
+                    case FLOAT -> line(field + " = readFloat();").line(field + "Set = true;");
+                    default -> line(field + " = readString();");
+                }
+            } else {
+                fail("Invalid input variables");
+            }
+        }
+    }
+
+    //The DATA values as one array of boxed constants and the cursor READ moves along it
+    private void dataPool() {
+        var values = new StringJoiner(", ");
+        for(Node value : data) {
+            switch(value.getType()) {
+                case INT -> values.add(intExpression(value));
+                case FLOAT -> values.add(floatExpression(value));
+                default -> values.add(stringExpression(value));
+            }
+        }
+        line("private static final Object[] DATA = {" + values + "};");
+        line("private int dataPosition;");
+    }
+
+    //Which value a READ gets depends on the READs and RESTOREs that ran before, so each one is checked as it is taken
+    private void read(ReadNode node) {
+        for(VariableNode variable : node.getValue()) {
+            String field = "v" + variable.getSlot();
+            switch(variable.getType()) {
+                case INT -> line(field + " = (Integer) data(Integer.class);").line(field + "Set = true;");
+                case FLOAT -> line(field + " = (Float) data(Float.class);").line(field + "Set = true;");
+                default -> line(field + " = (String) data(String.class);");
+            }
+        }
+    }
+
+    //Comparisons are always done on integers
+    private String condition(BooleanNode node) {
+        String operator = switch(node.getOperator()) {
+            case LESSTHAN -> " < ";
+            case LESSTHANEQUALS -> " <= ";
+            case GREATERTHAN -> " > ";
+            case GREATERTHANEQUALS -> " >= ";
+            case NOTEQUALS -> " != ";
+            default -> throw new UnsupportedOperationException("Invalid comparison operator");
+        };
+        return intExpression(node.getLeft()) + operator + intExpression(node.getRight());
+    }
+
+    /*
+        The expressions are Java expressions of the same type, so they compute and fail exactly like evaluateInt,
+        evaluateFloat and evaluateString in the Interpreter. The TypeChecker already made sure every one is of the type
+        it is emitted as.
+     */
+
+    //The element in its array. Each index() checks one index and works it into the offset of the ones before it, Java
+    //evaluates the calls from the innermost out, so the indices are worked out and checked in order
+    private String element(ArrayNode node) {
+        String dimensions = "v" + node.getSlot() + "Dims";
+        String offset = "0";
+        int dimension = 0;
+        for(Node index : node.getIndices()) {
+            offset = "index(" + dimensions + ", " + dimension++ + ", " + offset + ", " + intExpression(index) + ")";
+        }
+        return "v" + node.getSlot() + "[" + offset + "]";
+    }
+
+    private String intExpression(Node node) {
+        if(node instanceof IntegerNode) {
+            int value = ((IntegerNode) node).getValue();
+            return value < 0 ? "(" + value + ")" : Integer.toString(value);
+        } else if(node instanceof MathOpNode) {
+            return "(" + intExpression(((MathOpNode) node).getLeft()) + operator((MathOpNode) node)
+                    + intExpression(((MathOpNode) node).getRight()) + ")";
+        } else if(node instanceof VariableNode) {
+            String field = "v" + ((VariableNode) node).getSlot();
+            return "(" + field + "Set ? " + field + " : unassignedInt())";
+        } else if(node instanceof ArrayNode) {
+            return element((ArrayNode) node);
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("random")) {
+            return "random()";
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val")) {
+            return "Integer.parseInt(" + stringExpression(((FunctionNode) node).getParameters().get(0)) + ")";
+        }
+        throw new UnsupportedOperationException("Invalid integer variable assignment");
+    }
+
+    private String floatExpression(Node node) {
+        if(node instanceof FloatNode) {
+            float value = ((FloatNode) node).getValue();
+            String literal = Float.toString(value);
+            //Infinities and NaN have no literal, neither does a float that doesn't read back as exactly itself
+            if(Float.isFinite(value) && Float.floatToIntBits(Float.parseFloat(literal)) == Float.floatToIntBits(value))
+                return value < 0 || literal.startsWith("-") ? "(" + literal + "f)" : literal + "f";
+            return "Float.intBitsToFloat(" + Float.floatToIntBits(value) + ")";
+        } else if(node instanceof MathOpNode) {
+            return "(" + floatExpression(((MathOpNode) node).getLeft()) + operator((MathOpNode) node)
+                    + floatExpression(((MathOpNode) node).getRight()) + ")";
+        } else if(node instanceof VariableNode) {
+            String field = "v" + ((VariableNode) node).getSlot();
+            return "(" + field + "Set ? " + field + " : unassignedFloat())";
+        } else if(node instanceof ArrayNode) {
+            return element((ArrayNode) node);
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val%")) {
+            return "Float.parseFloat(" + stringExpression(((FunctionNode) node).getParameters().get(0)) + ")";
+        }
+        throw new UnsupportedOperationException("Invalid float variable assignment");
+    }
+
+    private String stringExpression(Node node) {
+        if(node instanceof StringNode) {
+            return literal(((StringNode) node).getValue());
+        } else if(node instanceof VariableNode) {
+            String field = "v" + ((VariableNode) node).getSlot();
+            return "(" + field + " != null ? " + field + " : unassignedString())";
+        } else if(node instanceof ArrayNode) {
+            return element((ArrayNode) node);
+        } else if(node instanceof FunctionNode) {
+            var params = ((FunctionNode) node).getParameters();
+            switch(((FunctionNode) node).getFunctionName()) {
+                case "left$" -> {
+                    return stringExpression(params.get(0)) + ".substring(0, " + intExpression(params.get(1)) + ")";
+                }
+                case "right$" -> {
+                    return "right(" + stringExpression(params.get(0)) + ", " + intExpression(params.get(1)) + ")";
+                }
+                case "mid$" -> {
+                    return stringExpression(params.get(0)) + ".substring(" + intExpression(params.get(1)) + ", "
+                            + intExpression(params.get(2)) + ")";
+                }
+                case "num$" -> {
+                    if(params.get(0).getType() == Type.INT)
+                        return "Integer.toString(" + intExpression(params.get(0)) + ")";
+                    return "Float.toString(" + floatExpression(params.get(0)) + ")";
+                }
+            }
+        }
+        throw new UnsupportedOperationException("Invalid string variable assignment");
+    }
+
+    private static String operator(MathOpNode node) {
+        return switch(node.getOperation()) {
+            case ADD -> " + ";
+            case SUBTRACT -> " - ";
+            case MULTIPLY -> " * ";
+            case DIVIDE -> " / ";
+            default -> throw new UnsupportedOperationException("Invalid math operator");
+        };
+    }
+
+    //The parts of the Interpreter's built-ins and errors that aren't a single call into java.base
+    private void builtIns() {
+        line("").line("private static int random() {").indent++;
+        line("return new java.util.Random().nextInt();").indent--;
+        line("}");
+        line("").line("private static String right(String data, int bound) {").indent++;
+        line("return data.substring(data.length() - bound);").indent--;
+        line("}");
+        line("").line("private Object data(Class<?> type) {").indent++;
+        line("if(dataPosition == DATA.length) fail(\"Out of DATA\");");
+        line("if(!type.isInstance(DATA[dataPosition])) fail(\"Mismatched types in READ list\");");
+        line("return DATA[dataPosition++];").indent--;
+        line("}");
+        line("").line("private static int index(int[] sizes, int dimension, int offset, int index) {").indent++;
+        line("if(sizes == null) fail(\"Use of undimensioned array\");");
+        line("if(index < 0 || index >= sizes[dimension]) fail(\"Array index out of bounds\");");
+        line("return offset * sizes[dimension] + index;").indent--;
+        line("}");
+        line("").line("private static int length(int[] sizes) {").indent++;
+        line("int length = 1;");
+        line("for(int size : sizes) {").indent++;
+        line("if(size < 0) fail(\"Invalid array size\");");
+        line("try {").indent++;
+        line("length = Math.multiplyExact(length, size);").indent--;
+        line("} catch(ArithmeticException e) {").indent++;
+        line("fail(\"Invalid array size\");").indent--;
+        line("}").indent--;
+        line("}");
+        line("return length;").indent--;
+        line("}");
+        line("").line("private static void fail(String message) {").indent++;
+        line("throw new RuntimeException(message);").indent--;
+        line("}");
+        line("").line("private static int unassignedInt() {").indent++;
+        line("throw new RuntimeException(\"Use of unassigned variable\");").indent--;
+        line("}");
+        line("").line("private static float unassignedFloat() {").indent++;
+        line("throw new RuntimeException(\"Use of unassigned variable\");").indent--;
+        line("}");
+        line("").line("private static String unassignedString() {").indent++;
+        line("throw new RuntimeException(\"Use of unassigned variable\");").indent--;
+        line("}");
+    }
+
+    //What PRINT and INPUT's prompts call. A class for an engine passes them on to its OutputSink, a standalone class
+    //keeps one buffer that goes to System.out every 64K, before INPUT reads and when the program stops
+    private void output() {
+        if(!standalone) {
+            line("").line("private void print(String text) {").indent++;
+            line("output.print(text);").indent--;
+            line("}");
+            for(String type : new String[] {"String", "int", "float"}) {
+                line("").line("private void println(" + type + " value) {").indent++;
+                line("output.println(value);").indent--;
+                line("}");
+            }
+            line("").line("private void beforeInput() {").indent++;
+            line("output.beforeInput();").indent--;
+            line("}");
+            line("").line("private void flush() {").indent++;
+            line("output.flush();").indent--;
+            line("}");
+            return;
+        }
+        line("").line("private void print(String text) {").indent++;
+        line("printed.append(text);");
+        line("if(printed.length() >= 1 << 16) flush();").indent--;
+        line("}");
+        for(String type : new String[] {"String", "int", "float"}) {
+            line("").line("private void println(" + type + " value) {").indent++;
+            line("printed.append(value).append(System.lineSeparator());");
+            line("if(printed.length() >= 1 << 16) flush();").indent--;
+            line("}");
+        }
+        line("").line("private void beforeInput() {").indent++;
+        line("flush();").indent--;
+        line("}");
+        line("").line("private void flush() {").indent++;
+        line("System.out.print(printed);");
+        line("System.out.flush();");
+        line("printed.setLength(0);").indent--;
+        line("}");
+    }
+
+    //What INPUT calls. A class for an engine reads from its InputSource, a standalone class reads System.in through one
+    //buffer for the whole program and splits it into values the same way BufferedInput does, with the same errors
+    private void input() {
+        if(!standalone) {
+            line("").line("private int readInt() {").indent++;
+            line("return input.readInt();").indent--;
+            line("}");
+            line("").line("private float readFloat() {").indent++;
+            line("return input.readFloat();").indent--;
+            line("}");
+            line("").line("private String readString() {").indent++;
+            line("return input.readString();").indent--;
+            line("}");
+            return;
+        }
+        line("").line("private int readInt() {").indent++;
+        line("String value = typedValue(\"int\");");
+        line("if(!value.matches(\"[+-]?[0-9]{1,10}\")) throw mismatch(\"int\", value);");
+        line("long number = Long.parseLong(value);");
+        line("if(number != (int) number) throw mismatch(\"int\", value);");
+        line("return (int) number;").indent--;
+        line("}");
+        line("").line("private float readFloat() {").indent++;
+        line("String value = typedValue(\"float\");");
+        line("if(!value.matches(\"[+-]?([0-9]+[.]?[0-9]*|[.][0-9]+)([eE][+-]?[0-9]+)?\"))").indent++;
+        line("throw mismatch(\"float\", value);").indent--;
+        line("return Float.parseFloat(value);").indent--;
+        line("}");
+        line("").line("private String readString() {").indent++;
+        line("return typedValue(\"string\");").indent--;
+        line("}");
+        line("").line("private String typedValue(String type) {").indent++;
+        line("while(separator(typedByte())) {").indent++;
+        line("if(typedByte == '\\n') typedLine++;");
+        line("typedByte = -2;").indent--;
+        line("}");
+        line("if(typedByte == -1)").indent++;
+        line("throw new RuntimeException(\"Expected input \" + type + \", input ended on line \" + typedLine);")
+                .indent--;
+        line("var value = new java.io.ByteArrayOutputStream();");
+        line("while(typedByte != -1 && !separator(typedByte)) {").indent++;
+        line("value.write(typedByte);");
+        line("typedByte = -2;");
+        line("typedByte();").indent--;
+        line("}");
+        line("return value.toString(java.nio.charset.StandardCharsets.UTF_8);").indent--;
+        line("}");
+        line("").line("//The byte after the last one used, -2 until it is read");
+        line("private int typedByte() {").indent++;
+        line("if(typedByte == -2) {").indent++;
+        line("if(typed == null) typed = new java.io.BufferedInputStream(System.in, 1 << 16);");
+        line("try {").indent++;
+        line("typedByte = typed.read();").indent--;
+        line("} catch(java.io.IOException e) {").indent++;
+        line("throw new java.io.UncheckedIOException(e);").indent--;
+        line("}").indent--;
+        line("}");
+        line("return typedByte;").indent--;
+        line("}");
+        line("").line("private static boolean separator(int b) {").indent++;
+        line("return b == ',' || b == ' ' || b == '\\n' || b == '\\r' || b == '\\t' || b == '\\f';").indent--;
+        line("}");
+        line("").line("private RuntimeException mismatch(String type, String value) {").indent++;
+        line("String message = \"Expected input \" + type + \", got \\\"\" + value;");
+        line("return new RuntimeException(message + \"\\\" on input line \" + typedLine);").indent--;
+        line("}");
+    }
+
+    private void fail(String message) {
+        line("fail(" + literal(message) + ");");
+    }
+
+    //A Java string literal of the value. Anything outside printable ASCII is escaped, never as a unicode escape of a
+    //line break though, javac would turn that into a real one before reading the literal
+    static String literal(String value) {
+        var literal = new StringBuilder("\"");
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch(c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                default -> {
+                    if(c < 0x20)
+                        literal.append(String.format("\\%03o", (int) c));
+                    else if(c > 0x7e)
+                        literal.append(String.format("\\u%04x", (int) c));
+                    else
+                        literal.append(c);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private JavaEmitter line(String text) {
+        if(!text.isEmpty())
+            out.append("    ".repeat(indent));
+        out.append(text).append('\n');
+        return this;
+    }
+}
@@ -0,0 +1,49 @@
+package Compiler;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.List;
+
+//Compiles the source of a single class with the JDK's own javac, entirely in memory
+public class JavaSourceCompiler {
+
+    //The class file of the class, which must not have any nested classes
+    public byte[] compile(String className, String source) {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if(javac == null)
+            throw new IllegalStateException("No Java compiler available, running on a JRE?");
+
+        var classFile = new ByteArrayOutputStream();
+        var files = new ForwardingJavaFileManager<>(javac.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                if(!name.equals(className))
+                    throw new IllegalStateException("Unexpected class " + name);
+                return new SimpleJavaFileObject(URI.create("memory:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classFile;
+                    }
+                };
+            }
+        };
+        var input = new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        var errors = new StringWriter();
+        //No debug info, the lines of the class don't mean anything to anyone running a BASIC program
+        var options = List.of("-g:none", "-proc:none", "-nowarn");
+        if(!javac.getTask(errors, files, null, options, null, List.of(input)).call())
+            throw new IllegalStateException("Compiling " + className + " failed: " + errors);
+        return classFile.toByteArray();
+    }
+}
@@ -0,0 +1,114 @@
+package Compiler;
+
+//Every instruction the VirtualMachine understands. An instruction is its opcode followed by a fixed number of int
+//operands inside of the Program's code array, the operands are listed next to each opcode.
+public final class OpCode {
+
+    private OpCode() {}
+
+    public static final int HALT = 0;              // stops the program, used for END and the end of the code
+    public static final int FAIL = 1;              // [message] throws the runtime error stored in the string pool
+
+    // Pushing values onto the typed stacks
+    public static final int PUSH_INT = 2;          // [value]
+    public static final int PUSH_FLOAT = 3;        // [Float.floatToIntBits(value)]
+    public static final int PUSH_STRING = 4;       // [string constant]
+
+    // Variable access, loads throw if the slot was never assigned
+    public static final int LOAD_INT = 5;          // [slot]
+    public static final int LOAD_FLOAT = 6;        // [slot]
+    public static final int LOAD_STRING = 7;       // [slot]
+    public static final int STORE_INT = 8;         // [slot]
+    public static final int STORE_FLOAT = 9;       // [slot]
+    public static final int STORE_STRING = 10;     // [slot]
+
+    // Arithmetic, pops the right then the left operand
+    public static final int ADD_INT = 11;
+    public static final int SUB_INT = 12;
+    public static final int MUL_INT = 13;
+    public static final int DIV_INT = 14;
+    public static final int ADD_FLOAT = 15;
+    public static final int SUB_FLOAT = 16;
+    public static final int MUL_FLOAT = 17;
+    public static final int DIV_FLOAT = 18;
+
+    // Comparisons, pops two ints and pushes 1 for true or 0 for false
+    public static final int LT_INT = 19;
+    public static final int LE_INT = 20;
+    public static final int GT_INT = 21;
+    public static final int GE_INT = 22;
+    public static final int NE_INT = 23;
+
+    // Control flow
+    public static final int JUMP = 24;             // [target]
+    public static final int JUMP_FALSE = 25;       // [target] pops an int and jumps if it is 0
+    public static final int CALL = 26;             // [target] pushes the next instruction onto the return stack
+    public static final int RET = 27;
+
+    // FOR loops, see BytecodeCompiler.compileFor for how these fit together
+    public static final int FOR_STEP = 28;         // [slot, step, target] if the slot is assigned add step and jump
+    public static final int FOR_TEST = 29;         // [slot, end, target] jumps to target once the slot reaches end
+
+    // Built-in functions
+    public static final int RANDOM = 30;
+    public static final int VAL = 31;              // string -> int
+    public static final int VAL_FLOAT = 32;        // string -> float
+    public static final int LEFT = 33;             // string, int -> string
+    public static final int RIGHT = 34;            // string, int -> string
+    public static final int MID = 35;              // string, int, int -> string
+    public static final int NUM_INT = 36;          // int -> string
+    public static final int NUM_FLOAT = 37;        // float -> string
+
+    // Statements that talk to the outside world
+    public static final int PRINT_CONST = 38;      // [string constant]
+    public static final int PRINT_INT = 39;        // [slot]
+    public static final int PRINT_FLOAT = 40;      // [slot]
+    public static final int PRINT_STRING = 41;     // [slot]
+    // 42 was INPUT_BEGIN, which did nothing once INPUT read from one source for the whole program
+    public static final int INPUT_PROMPT = 43;     // [string constant]
+    public static final int INPUT_INT = 44;        // [slot]
+    public static final int INPUT_FLOAT = 45;      // [slot]
+    public static final int INPUT_STRING = 46;     // [slot]
+    public static final int RESTORE = 47;          // READ starts over from the first DATA value
+    public static final int READ_INT = 48;         // [slot]
+    public static final int READ_FLOAT = 49;       // [slot]
+    public static final int READ_STRING = 50;      // [slot]
+
+    // FOR loops that count down or whose bounds are worked out into the two slots starting at bounds
+    public static final int FOR_TEST_DOWN = 51;    // [slot, end, target] jumps to target once the slot is down to end
+    public static final int FOR_STEP_SLOT = 52;    // [slot, bounds, target] FOR_STEP with the step in bounds + 1
+    public static final int FOR_TEST_SLOT = 53;    // [slot, bounds, target] FOR_TEST or FOR_TEST_DOWN by the step
+
+    // Arrays. An element's offset is worked out on the int stack, an INDEX after each index checks it against its
+    // dimension and, past the first one, pops it into the offset under it. The element opcodes pop the offset
+    public static final int DIM = 54;              // [slot, count] pops the sizes of count dimensions, the last on top
+    public static final int INDEX = 55;            // [slot, dimension]
+    public static final int LOAD_INT_ELEMENT = 56;     // [slot]
+    public static final int LOAD_FLOAT_ELEMENT = 57;   // [slot]
+    public static final int LOAD_STRING_ELEMENT = 58;  // [slot]
+    public static final int STORE_INT_ELEMENT = 59;    // [slot] pops the offset and then the value
+    public static final int STORE_FLOAT_ELEMENT = 60;  // [slot]
+    public static final int STORE_STRING_ELEMENT = 61; // [slot]
+    public static final int PRINT_INT_ELEMENT = 62;    // [slot]
+    public static final int PRINT_FLOAT_ELEMENT = 63;  // [slot]
+    public static final int PRINT_STRING_ELEMENT = 64; // [slot]
+
+    //The amount of operands that follow each opcode
+    private static final int[] OPERANDS = {
+            0, 1,
+            1, 1, 1,
+            1, 1, 1, 1, 1, 1,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0,
+            1, 1, 1, 0,
+            3, 3,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 0, 1, 1, 1, 1, 0, 1, 1, 1,
+            3, 3, 3,
+            2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1
+    };
+
+    public static int operands(int opcode) {
+        return OPERANDS[opcode];
+    }
+}
@@ -0,0 +1,76 @@
+package Compiler;
+
+//The output of the BytecodeCompiler, a flat opcode array along with the pools and variable tables its operands index
+public class Program {
+
+    private final int[] code;
+
+    //String literals and runtime error messages
+    private final String[] strings;
+
+    //The values of every DATA statement, each one is an Integer, Float or String
+    private final Object[] data;
+
+    //Variable names by slot, see Parser.SlotResolver
+    private final String[] variables;
+
+    //The deepest each of the typed operand stacks can get
+    private final int intStackSize;
+    private final int floatStackSize;
+    private final int stringStackSize;
+
+    public Program(int[] code, String[] strings, Object[] data, String[] variables, int intStackSize,
+                   int floatStackSize, int stringStackSize) {
+        this.code = code;
+        this.strings = strings;
+        this.data = data;
+        this.variables = variables;
+        this.intStackSize = intStackSize;
+        this.floatStackSize = floatStackSize;
+        this.stringStackSize = stringStackSize;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public String[] getStrings() {
+        return strings;
+    }
+
+    public Object[] getData() {
+        return data;
+    }
+
+    public String[] getVariables() {
+        return variables;
+    }
+
+    public int getIntStackSize() {
+        return intStackSize;
+    }
+
+    public int getFloatStackSize() {
+        return floatStackSize;
+    }
+
+    public int getStringStackSize() {
+        return stringStackSize;
+    }
+
+    //Lists every instruction as "position: opcode operands", handy for checking what the compiler produced
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        int pc = 0;
+        while(pc < code.length) {
+            s.append(pc).append(": ").append(code[pc]);
+            for(int i = 1; i <= OpCode.operands(code[pc]); i++) {
+                s.append(' ').append(code[pc + i]);
+            }
+            s.append('\n');
+            pc += OpCode.operands(code[pc]) + 1;
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package Compiler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+//Compiled programs saved on disk, one file per source named after a hash of the source and the VERSION. Running a file
+//that was run before then only has to read the Program back in, the Lexer, Parser and compiler are skipped entirely.
+//The cache is only ever a shortcut: anything missing, unreadable or from another version counts as a miss.
+public class ProgramCache {
+
+    //Bump whenever the Parser, Linker, BytecodeCompiler or VirtualMachine change what a program compiles to or how the
+    //code is run, so programs cached by an older build are never loaded
+    public static final int VERSION = 9;
+
+    private static final int MAGIC = 0x42415343; //"BASC"
+
+    private static final byte INTEGER = 0, FLOAT = 1, STRING = 2;
+
+    private final Path directory;
+
+    //A cached program along with the "Unrecognized char" messages lexing it printed, which get printed again on a hit
+    public record Entry(Program program, String warnings) {}
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    //The hash of the version and the source file's bytes, as hex
+    public String key(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(new byte[] {(byte) (VERSION >>> 24), (byte) (VERSION >>> 16), (byte) (VERSION >>> 8), (byte) VERSION});
+        try(var in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(source)), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        StringBuilder hex = new StringBuilder();
+        for(byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    //The program cached under the key, or null if there isn't a usable one
+    public Entry load(String key) {
+        var file = directory.resolve(key + ".bbc");
+        if(!Files.isRegularFile(file))
+            return null;
+        try(var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(key))
+                return null;
+            String warnings = readString(in);
+
+            int[] code = new int[in.readInt()];
+            for(int i = 0; i < code.length; i++) {
+                code[i] = in.readInt();
+            }
+            String[] strings = new String[in.readInt()];
+            for(int i = 0; i < strings.length; i++) {
+                strings[i] = readString(in);
+            }
+            Object[] data = new Object[in.readInt()];
+            for(int i = 0; i < data.length; i++) {
+                data[i] = switch(in.readByte()) {
+                    case INTEGER -> in.readInt();
+                    case FLOAT -> in.readFloat();
+                    case STRING -> readString(in);
+                    default -> throw new IOException("Unknown DATA type");
+                };
+            }
+            String[] variables = new String[in.readInt()];
+            for(int i = 0; i < variables.length; i++) {
+                variables[i] = readString(in);
+            }
+            var program = new Program(code, strings, data, variables, in.readInt(), in.readInt(), in.readInt());
+            return new Entry(program, warnings);
+        } catch(IOException | RuntimeException e) { //a damaged file is just a miss, it gets written over
+            return null;
+        }
+    }
+
+    //Saves the program under the key. Failing to is not an error, the program just won't be cached
+    public void store(String key, Program program, String warnings) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            //Written to the side and moved into place, so a run that starts meanwhile never sees half a file
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            try(var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                writeString(out, warnings);
+
+                out.writeInt(program.getCode().length);
+                for(int op : program.getCode()) {
+                    out.writeInt(op);
+                }
+                out.writeInt(program.getStrings().length);
+                for(String s : program.getStrings()) {
+                    writeString(out, s);
+                }
+                out.writeInt(program.getData().length);
+                for(Object value : program.getData()) {
+                    if(value instanceof Integer i) {
+                        out.writeByte(INTEGER);
+                        out.writeInt(i);
+                    } else if(value instanceof Float f) {
+                        out.writeByte(FLOAT);
+                        out.writeFloat(f);
+                    } else {
+                        out.writeByte(STRING);
+                        writeString(out, (String) value);
+                    }
+                }
+                out.writeInt(program.getVariables().length);
+                for(String name : program.getVariables()) {
+                    writeString(out, name);
+                }
+                out.writeInt(program.getIntStackSize());
+                out.writeInt(program.getFloatStackSize());
+                out.writeInt(program.getStringStackSize());
+            }
+            Files.move(temporary, directory.resolve(key + ".bbc"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            if(temporary != null)
+                temporary.toFile().delete();
+        }
+    }
+
+    //writeUTF can't take Strings longer than 64K, so Strings are written as a length and chars
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        char[] chars = new char[in.readInt()];
+        for(int i = 0; i < chars.length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+}
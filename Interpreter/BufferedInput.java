@@ -0,0 +1,212 @@
+package Interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//The default InputSource. Input is read in large blocks and split into values by hand, values are separated by commas,
+//spaces, tabs and line breaks in any mix. Ints and most floats are parsed straight from the bytes, only strings and
+//floats with long or far out digits make an object. A read from a terminal takes what was typed so far, so INPUT
+//doesn't wait for the block to fill
+public class BufferedInput implements InputSource {
+
+    public static final int CAPACITY = 1 << 16;
+
+    //Floats up to 10^10 are exact, so a mantissa below 2^24 scaled by one of them is rounded only once
+    private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    //Where the input comes from, System.in as it is at the first read if it is null
+    private InputStream source;
+
+    //What the values are called in errors, "input" for INPUT's
+    private final String name;
+
+    //The bytes read but not used yet are the ones from position to limit
+    private byte[] buffer = new byte[CAPACITY];
+    private int position = 0;
+    private int limit = 0;
+    private boolean ended = false;
+
+    //The last value found, from tokenStart to position, and the input line it is on
+    private int tokenStart;
+    private int line = 1;
+
+    //Reads from System.in
+    public BufferedInput() {
+        this(null);
+    }
+
+    public BufferedInput(InputStream source) {
+        this(source, "input");
+    }
+
+    public BufferedInput(InputStream source, String name) {
+        this.source = source;
+        this.name = name;
+    }
+
+    //Whether there is another value before the input ends
+    public boolean hasNext() {
+        return skipSeparators();
+    }
+
+    @Override
+    public int readInt() {
+        if(!nextToken())
+            throw ended("int");
+        int i = tokenStart;
+        boolean negative = buffer[i] == '-';
+        if(negative || buffer[i] == '+')
+            i++;
+        if(i == position || position - i > 10)
+            throw mismatch("int");
+        long value = 0;
+        for(; i < position; i++) {
+            int digit = buffer[i] - '0';
+            if(digit < 0 || digit > 9)
+                throw mismatch("int");
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw mismatch("int");
+        return (int) value;
+    }
+
+    @Override
+    public float readFloat() {
+        if(!nextToken())
+            throw ended("float");
+        int i = tokenStart;
+        boolean negative = buffer[i] == '-';
+        if(negative || buffer[i] == '+')
+            i++;
+
+        //The digits before and after the point make one mantissa, the point moves the exponent
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean point = false;
+        for(; i < position; i++) {
+            byte b = buffer[i];
+            if(b >= '0' && b <= '9') {
+                if(mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(point)
+                        exponent--;
+                } else if(!point) { //too many digits to keep, they only scale the ones kept
+                    exponent++;
+                }
+                digits++;
+            } else if(b == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if(digits == 0)
+            throw mismatch("float");
+        if(i < position && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < position && buffer[i] == '-';
+            if(i < position && (negativeExponent || buffer[i] == '+'))
+                i++;
+            if(i == position)
+                throw mismatch("float");
+            int written = 0;
+            for(; i < position && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+                if(written < 1000) //anything past this is zero or infinity anyway
+                    written = written * 10 + (buffer[i] - '0');
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+        if(i != position)
+            throw mismatch("float");
+
+        float value;
+        if(mantissa < 1 << 24 && exponent >= -10 && exponent <= 10) {
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Float.parseFloat(token()); //rounding this correctly takes more than a float has
+    }
+
+    @Override
+    public String readString() {
+        if(!nextToken())
+            throw ended("string");
+        return token();
+    }
+
+    private String token() {
+        return new String(buffer, tokenStart, position - tokenStart, StandardCharsets.UTF_8);
+    }
+
+    private RuntimeException mismatch(String type) {
+        return new RuntimeException("Expected " + name + " " + type + ", got \"" + token() + "\" on " + name + " line "
+                + line);
+    }
+
+    private RuntimeException ended(String type) {
+        return new RuntimeException("Expected " + name + " " + type + ", " + name + " ended on line " + line);
+    }
+
+    //Skips to the next value and reads until all of it is in the buffer, false if the input ended first
+    private boolean nextToken() {
+        if(!skipSeparators())
+            return false;
+        tokenStart = position;
+        while(position < limit || fill(tokenStart)) { //a value cut off by the end of the buffer is kept whole
+            if(separator(buffer[position]))
+                break;
+            position++;
+        }
+        return true;
+    }
+
+    private boolean skipSeparators() {
+        while(true) {
+            if(position == limit && !fill(position))
+                return false;
+            byte b = buffer[position];
+            if(!separator(b))
+                return true;
+            if(b == '\n')
+                line++;
+            position++;
+        }
+    }
+
+    private static boolean separator(byte b) {
+        return b == ',' || b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    //Reads more input after what is buffered. The bytes from keep on are moved to the front first to make room, the
+    //rest were used already
+    private boolean fill(int keep) {
+        if(ended)
+            return false;
+        System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+        position -= keep;
+        limit -= keep;
+        tokenStart -= keep;
+        if(limit == buffer.length) //a value longer than the buffer
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+        if(source == null)
+            source = System.in;
+        int read;
+        try {
+            read = source.read(buffer, limit, buffer.length - limit);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if(read <= 0) {
+            ended = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
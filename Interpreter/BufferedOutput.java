@@ -0,0 +1,145 @@
+package Interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+//The default OutputSink. Lines are encoded as UTF-8 straight into one large buffer, which goes out in a single write
+//once it is full, when the program stops, and before every INPUT if that is turned on. System.out takes a lock and
+//flushes for every println, which is most of the time a program that prints in a loop spends
+public class BufferedOutput implements OutputSink {
+
+    public static final int CAPACITY = 1 << 16;
+
+    //Room for any number and the line break after it
+    private static final int MIN_CAPACITY = 2 * NumberFormatter.MAX_LENGTH;
+
+    //Where the buffer is written to, null to write to whatever System.out is when it is flushed
+    private final OutputStream target;
+
+    //Holds the bytes that weren't written yet
+    private final byte[] buffer;
+    private int size = 0;
+
+    //The buffer is written out as soon as it holds this many bytes
+    private final int writeEvery;
+
+    private final boolean flushBeforeInput;
+
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    //Writes to System.out every CAPACITY bytes and before each INPUT
+    public BufferedOutput() {
+        this(null, CAPACITY, true);
+    }
+
+    //Writes once writeEvery bytes are buffered, which can be as few as one. A writeEvery bigger than everything a
+    //program prints keeps it all until the program stops
+    public BufferedOutput(OutputStream target, int writeEvery, boolean flushBeforeInput) {
+        if(writeEvery < 1)
+            throw new IllegalArgumentException("Output can't be written every " + writeEvery + " bytes");
+        this.target = target;
+        buffer = new byte[Math.max(writeEvery, MIN_CAPACITY)];
+        this.writeEvery = writeEvery;
+        this.flushBeforeInput = flushBeforeInput;
+    }
+
+    @Override
+    public void print(String text) {
+        encode(text);
+        if(size >= writeEvery)
+            write();
+    }
+
+    @Override
+    public void println(String line) {
+        encode(line);
+        newLine();
+    }
+
+    private void encode(String text) {
+        int length = text.length();
+        for(int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if(buffer.length - size < 4)
+                write();
+            if(c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if(c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int point = Character.toCodePoint(c, text.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | point >> 18);
+                buffer[size++] = (byte) (0x80 | point >> 12 & 0x3F);
+                buffer[size++] = (byte) (0x80 | point >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | point & 0x3F);
+            } else if(Character.isSurrogate(c)) { //half a pair can't be encoded, String.getBytes writes ? for it too
+                buffer[size++] = '?';
+            } else {
+                buffer[size++] = (byte) (0xE0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    @Override
+    public void println(int value) {
+        if(buffer.length - size < NumberFormatter.MAX_LENGTH)
+            write();
+        size = NumberFormatter.write(value, buffer, size);
+        newLine();
+    }
+
+    @Override
+    public void println(float value) {
+        if(buffer.length - size < NumberFormatter.MAX_LENGTH)
+            write();
+        size = NumberFormatter.write(value, buffer, size);
+        newLine();
+    }
+
+    @Override
+    public void beforeInput() {
+        if(flushBeforeInput)
+            flush();
+    }
+
+    @Override
+    public void flush() {
+        write();
+        try {
+            out().flush();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void newLine() {
+        if(buffer.length - size < lineSeparator.length)
+            write();
+        for(byte b : lineSeparator) {
+            buffer[size++] = b;
+        }
+        if(size >= writeEvery)
+            write();
+    }
+
+    //Empties the buffer into the target
+    private void write() {
+        if(size == 0)
+            return;
+        try {
+            out().write(buffer, 0, size);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size = 0;
+    }
+
+    private OutputStream out() {
+        return target != null ? target : System.out;
+    }
+}
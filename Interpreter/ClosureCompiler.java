@@ -0,0 +1,270 @@
+package Interpreter;
+
+import Parser.Node.*;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+//Lowers expressions and simple statements into closures that read and write a VariableStore. Shared by the
+//ClosureEngine and the Interpreter, which compiles the parts of a program that run often into these.
+class ClosureCompiler {
+
+    interface FloatSupplier {
+        float getAsFloat();
+    }
+
+    private final VariableStore variables;
+    private final OutputSink output;
+
+    ClosureCompiler(VariableStore variables, OutputSink output) {
+        this.variables = variables;
+        this.output = output;
+    }
+
+    Runnable assignment(AssignmentNode node) {
+        int slot = node.getVariable().getSlot();
+        switch(node.getVariable().getType()) {
+            case INT -> {
+                IntSupplier value = intExpression(node.getExpression());
+                return () -> variables.setInt(slot, value.getAsInt());
+            }
+            case FLOAT -> {
+                FloatSupplier value = floatExpression(node.getExpression());
+                return () -> variables.setFloat(slot, value.getAsFloat());
+            }
+            default -> {
+                Supplier<String> value = stringExpression(node.getExpression());
+                return () -> variables.setString(slot, value.get());
+            }
+        }
+    }
+
+    //The value is worked out before the indices, like in the Interpreter
+    Runnable arrayAssignment(ArrayAssignmentNode node) {
+        int slot = node.getElement().getSlot();
+        IntSupplier offset = offset(node.getElement());
+        switch(node.getElement().getType()) {
+            case INT -> {
+                IntSupplier value = intExpression(node.getExpression());
+                return () -> {
+                    int result = value.getAsInt();
+                    variables.setInt(slot, offset.getAsInt(), result);
+                };
+            }
+            case FLOAT -> {
+                FloatSupplier value = floatExpression(node.getExpression());
+                return () -> {
+                    float result = value.getAsFloat();
+                    variables.setFloat(slot, offset.getAsInt(), result);
+                };
+            }
+            default -> {
+                Supplier<String> value = stringExpression(node.getExpression());
+                return () -> {
+                    String result = value.get();
+                    variables.setString(slot, offset.getAsInt(), result);
+                };
+            }
+        }
+    }
+
+    Runnable dim(DimNode node) {
+        var arrays = node.getArrays();
+        int[] slots = new int[arrays.size()];
+        IntSupplier[][] sizes = new IntSupplier[arrays.size()][];
+        for(int i = 0; i < slots.length; i++) {
+            slots[i] = arrays.get(i).getSlot();
+            sizes[i] = arrays.get(i).getIndices().stream().map(this::intExpression).toArray(IntSupplier[]::new);
+        }
+        return () -> {
+            for(int i = 0; i < slots.length; i++) {
+                int[] dimensions = new int[sizes[i].length];
+                for(int j = 0; j < dimensions.length; j++) {
+                    dimensions[j] = sizes[i][j].getAsInt();
+                }
+                variables.dim(slots[i], dimensions);
+            }
+        };
+    }
+
+    Runnable print(Node node) {
+        if(node instanceof StringNode) {
+            String value = ((StringNode) node).getValue();
+            return () -> output.println(value);
+        } else if(node instanceof ArrayNode) { //elements always have a value
+            int slot = ((ArrayNode) node).getSlot();
+            IntSupplier offset = offset((ArrayNode) node);
+            switch(node.getType()) {
+                case INT -> { return () -> output.println(variables.getInt(slot, offset.getAsInt())); }
+                case FLOAT -> { return () -> output.println(variables.getFloat(slot, offset.getAsInt())); }
+                default -> { return () -> output.println(variables.getString(slot, offset.getAsInt())); }
+            }
+        }
+        int slot = ((VariableNode) node).getSlot();
+        String undeclared = node + " not declared";
+        switch(node.getType()) {
+            case INT -> {
+                return () -> {
+                    if(!variables.hasInt(slot))
+                        throw new RuntimeException(undeclared);
+                    output.println(variables.getInt(slot));
+                };
+            }
+            case FLOAT -> {
+                return () -> {
+                    if(!variables.hasFloat(slot))
+                        throw new RuntimeException(undeclared);
+                    output.println(variables.getFloat(slot));
+                };
+            }
+            default -> {
+                return () -> {
+                    if(!variables.hasString(slot))
+                        throw new RuntimeException(undeclared);
+                    output.println(variables.getString(slot));
+                };
+            }
+        }
+    }
+
+    //Comparisons are always done on integers
+    BooleanSupplier condition(BooleanNode node) {
+        IntSupplier left = intExpression(node.getLeft());
+        IntSupplier right = intExpression(node.getRight());
+        switch(node.getOperator()) {
+            case LESSTHAN -> { return () -> left.getAsInt() < right.getAsInt(); }
+            case LESSTHANEQUALS -> { return () -> left.getAsInt() <= right.getAsInt(); }
+            case GREATERTHAN -> { return () -> left.getAsInt() > right.getAsInt(); }
+            case GREATERTHANEQUALS -> { return () -> left.getAsInt() >= right.getAsInt(); }
+            case NOTEQUALS -> { return () -> left.getAsInt() != right.getAsInt(); }
+            default -> { return () -> { throw new RuntimeException("Invalid comparison operator"); }; }
+        }
+    }
+
+    //Works the element's indices into its offset, each one checked before the next is worked out. Most arrays have the
+    //one dimension, which doesn't need the loop
+    IntSupplier offset(ArrayNode node) {
+        int slot = node.getSlot();
+        IntSupplier[] indices = node.getIndices().stream().map(this::intExpression).toArray(IntSupplier[]::new);
+        if(indices.length == 1) {
+            IntSupplier index = indices[0];
+            return () -> variables.index(slot, 0, 0, index.getAsInt());
+        }
+        return () -> {
+            int offset = 0;
+            for(int dimension = 0; dimension < indices.length; dimension++) {
+                offset = variables.index(slot, dimension, offset, indices[dimension].getAsInt());
+            }
+            return offset;
+        };
+    }
+
+    /*
+        The expression lowerings mirror evaluateInt, evaluateFloat and evaluateString in the Interpreter. The
+        TypeChecker already made sure every expression is of the type it is lowered as.
+     */
+
+    IntSupplier intExpression(Node node) {
+        if(node instanceof IntegerNode) {
+            int value = ((IntegerNode) node).getValue();
+            return () -> value;
+        } else if(node instanceof MathOpNode) {
+            IntSupplier left = intExpression(((MathOpNode) node).getLeft());
+            IntSupplier right = intExpression(((MathOpNode) node).getRight());
+            switch(((MathOpNode) node).getOperation()) {
+                case ADD -> { return () -> left.getAsInt() + right.getAsInt(); }
+                case SUBTRACT -> { return () -> left.getAsInt() - right.getAsInt(); }
+                case MULTIPLY -> { return () -> left.getAsInt() * right.getAsInt(); }
+                case DIVIDE -> { return () -> left.getAsInt() / right.getAsInt(); }
+                default -> { return () -> { throw new RuntimeException("Invalid math operator"); }; }
+            }
+        } else if(node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+            return () -> variables.getInt(slot);
+        } else if(node instanceof ArrayNode) {
+            int slot = ((ArrayNode) node).getSlot();
+            IntSupplier offset = offset((ArrayNode) node);
+            return () -> variables.getInt(slot, offset.getAsInt());
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("random")) {
+            return Interpreter::random;
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val")) {
+            Supplier<String> value = stringExpression(((FunctionNode) node).getParameters().get(0));
+            return () -> Interpreter.intVal(value.get());
+        } else {
+            throw new RuntimeException("Invalid integer variable assignment");
+        }
+    }
+
+    FloatSupplier floatExpression(Node node) {
+        if(node instanceof FloatNode) {
+            float value = ((FloatNode) node).getValue();
+            return () -> value;
+        } else if(node instanceof MathOpNode) {
+            FloatSupplier left = floatExpression(((MathOpNode) node).getLeft());
+            FloatSupplier right = floatExpression(((MathOpNode) node).getRight());
+            switch(((MathOpNode) node).getOperation()) {
+                case ADD -> { return () -> left.getAsFloat() + right.getAsFloat(); }
+                case SUBTRACT -> { return () -> left.getAsFloat() - right.getAsFloat(); }
+                case MULTIPLY -> { return () -> left.getAsFloat() * right.getAsFloat(); }
+                case DIVIDE -> { return () -> left.getAsFloat() / right.getAsFloat(); }
+                default -> { return () -> { throw new RuntimeException("Invalid math operator"); }; }
+            }
+        } else if(node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+            return () -> variables.getFloat(slot);
+        } else if(node instanceof ArrayNode) {
+            int slot = ((ArrayNode) node).getSlot();
+            IntSupplier offset = offset((ArrayNode) node);
+            return () -> variables.getFloat(slot, offset.getAsInt());
+        } else if(node instanceof FunctionNode && ((FunctionNode) node).getFunctionName().equals("val%")) {
+            Supplier<String> value = stringExpression(((FunctionNode) node).getParameters().get(0));
+            return () -> Interpreter.floatVal(value.get());
+        } else {
+            throw new RuntimeException("Invalid float variable assignment");
+        }
+    }
+
+    Supplier<String> stringExpression(Node node) {
+        if(node instanceof StringNode) {
+            String value = ((StringNode) node).getValue();
+            return () -> value;
+        } else if(node instanceof VariableNode) {
+            int slot = ((VariableNode) node).getSlot();
+            return () -> variables.getString(slot);
+        } else if(node instanceof ArrayNode) {
+            int slot = ((ArrayNode) node).getSlot();
+            IntSupplier offset = offset((ArrayNode) node);
+            return () -> variables.getString(slot, offset.getAsInt());
+        } else if(node instanceof FunctionNode) {
+            var params = ((FunctionNode) node).getParameters();
+            switch(((FunctionNode) node).getFunctionName()) {
+                case "left$" -> {
+                    Supplier<String> value = stringExpression(params.get(0));
+                    IntSupplier bound = intExpression(params.get(1));
+                    return () -> Interpreter.left(value.get(), bound.getAsInt());
+                }
+                case "right$" -> {
+                    Supplier<String> value = stringExpression(params.get(0));
+                    IntSupplier bound = intExpression(params.get(1));
+                    return () -> Interpreter.right(value.get(), bound.getAsInt());
+                }
+                case "mid$" -> {
+                    Supplier<String> value = stringExpression(params.get(0));
+                    IntSupplier left = intExpression(params.get(1));
+                    IntSupplier right = intExpression(params.get(2));
+                    return () -> Interpreter.mid(value.get(), left.getAsInt(), right.getAsInt());
+                }
+                case "num$" -> {
+                    if(params.get(0).getType() == Type.INT) {
+                        IntSupplier number = intExpression(params.get(0));
+                        return () -> Interpreter.num(number.getAsInt());
+                    }
+                    FloatSupplier number = floatExpression(params.get(0));
+                    return () -> Interpreter.num(number.getAsFloat());
+                }
+            }
+        }
+        throw new RuntimeException("Invalid string variable assignment");
+    }
+}
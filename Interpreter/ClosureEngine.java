@@ -0,0 +1,338 @@
+package Interpreter;
+
+import Parser.Linker;
+import Parser.Node.*;
+import Parser.SlotResolver;
+import Parser.TypeChecker;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+//Turns every statement and expression into a Java lambda once, before the program runs. Each lambda already has its
+//operator, variable slot and jump target worked out, so running the program is nothing but calling them, no instanceof
+//or switch is ever looked at again. Statements are laid out the way the BytecodeCompiler lays out its code and behave
+//the same as the Interpreter's.
+public class ClosureEngine implements Engine {
+
+    //A statement, returns the address of the statement to run after it
+    private interface Step {
+        int run();
+    }
+
+    //A prompt or variable of an INPUT statement
+    private interface InputItem {
+        void read();
+    }
+
+    //The address run() stops at
+    private static final int HALT = -1;
+
+    private final VariableStore variables;
+
+    //Lowers expressions, assignments and PRINT items into closures over the variables
+    private final ClosureCompiler closures;
+
+    //Where PRINT and the INPUT prompts write to, flushed when the program stops
+    private final OutputSink output;
+
+    //Where INPUT reads from, the same one for every INPUT statement
+    private final InputSource input;
+
+    //The values of every DATA statement, READ takes them one at a time
+    private final DataSource data;
+
+    //The main program at the addresses of its statements, then every label's statement followed by a return to where
+    //it was called from
+    private final Step[] steps;
+
+    //Where to go back to when a label's statement is done, GOSUBs can't nest deeper than maxDepth
+    private int[] returnStack = new int[16];
+    private int returnDepth = 0;
+    private final int maxDepth;
+
+    //Where each label's statement and each FOR is, and where the code after each NEXT starts
+    private final HashMap<LabeledStatementNode, Integer> labelAddresses = new HashMap<>();
+    private final HashMap<ForNode, Integer> loopHeads = new HashMap<>();
+    private final HashMap<NextNode, Integer> loopExits = new HashMap<>();
+
+    //Where each WHILE and each label of the main program is
+    private final HashMap<WhileNode, Integer> whileHeads = new HashMap<>();
+    private final HashMap<LabeledStatementNode, Integer> labelPlaces = new HashMap<>();
+
+    //A pass of each FOR loop, shared by the FOR and the NEXT that goes back to it
+    private final HashMap<ForNode, Step> loopPasses = new HashMap<>();
+
+    public ClosureEngine(StatementListNode statementList) {
+        this(statementList, new BufferedOutput());
+    }
+
+    public ClosureEngine(StatementListNode statementList, OutputSink output) {
+        this(statementList, output, new BufferedInput());
+    }
+
+    public ClosureEngine(StatementListNode statementList, OutputSink output, InputSource input) {
+        this(statementList, output, input, null);
+    }
+
+    //READ goes on to the values of moreData once the DATA statements' run out, if it isn't null
+    public ClosureEngine(StatementListNode statementList, OutputSink output, InputSource input, DataSource moreData) {
+        this(statementList, Interpreter.MAX_DEPTH, output, input, moreData);
+    }
+
+    public ClosureEngine(StatementListNode statementList, int maxDepth, OutputSink output, InputSource input,
+                         DataSource moreData) {
+        this.maxDepth = maxDepth;
+        new Linker().link(statementList);
+        new TypeChecker().check(statementList);
+        variables = new VariableStore(new SlotResolver().resolve(statementList));
+        this.output = output;
+        this.input = input;
+        closures = new ClosureCompiler(variables, output);
+
+        var list = statementList.getList();
+        data = new DataPool(statementList, moreData);
+
+        //Every address has to be known before any jump to it can be turned into a closure
+        var placed = new ArrayList<StatementNode>();
+        for(Node statement : list) {
+            place((StatementNode) statement, placed);
+        }
+        placed.add(null); //the end of the main program
+        for(Node search : list) {
+            if(search instanceof LabeledStatementNode) {
+                labelAddresses.put((LabeledStatementNode) search, placed.size());
+                if(((LabeledStatementNode) search).getStatement() != null)
+                    place(((LabeledStatementNode) search).getStatement(), placed);
+                placed.add(new ReturnNode());
+            }
+        }
+
+        steps = new Step[placed.size()];
+        for(int address = 0; address < steps.length; address++) {
+            steps[address] = placed.get(address) == null ? () -> HALT : statement(placed.get(address), address);
+        }
+    }
+
+    @Override
+    public void run() {
+        final Step[] steps = this.steps;
+        int address = 0;
+        try {
+            while(address != HALT) {
+                address = steps[address].run();
+            }
+        } finally {
+            output.flush(); //what was printed before an error still shows up
+        }
+    }
+
+    private void place(StatementNode node, ArrayList<StatementNode> placed) {
+        if(node instanceof ForNode)
+            loopHeads.put((ForNode) node, placed.size());
+        else if(node instanceof NextNode)
+            loopExits.put((NextNode) node, placed.size() + 1);
+        else if(node instanceof WhileNode)
+            whileHeads.put((WhileNode) node, placed.size());
+        else if(node instanceof LabeledStatementNode)
+            labelPlaces.put((LabeledStatementNode) node, placed.size());
+        placed.add(node);
+    }
+
+    private Step statement(StatementNode node, int address) {
+        final int next = address + 1;
+        if(node instanceof AssignmentNode) {
+            Runnable assignment = closures.assignment((AssignmentNode) node);
+            return () -> {
+                assignment.run();
+                return next;
+            };
+        } else if(node instanceof ArrayAssignmentNode) {
+            Runnable assignment = closures.arrayAssignment((ArrayAssignmentNode) node);
+            return () -> {
+                assignment.run();
+                return next;
+            };
+        } else if(node instanceof DimNode) {
+            Runnable dim = closures.dim((DimNode) node);
+            return () -> {
+                dim.run();
+                return next;
+            };
+        } else if(node instanceof PrintNode) {
+            var printList = ((PrintNode) node).getList();
+            Runnable[] items = new Runnable[printList.size()];
+            for(int i = 0; i < items.length; i++) {
+                items[i] = closures.print(printList.get(i));
+            }
+            return () -> {
+                for(Runnable item : items) {
+                    item.run();
+                }
+                return next;
+            };
+        } else if(node instanceof InputNode) {
+            return input((InputNode) node, next);
+        } else if(node instanceof ReadNode) {
+            return read((ReadNode) node, next);
+        } else if(node instanceof RestoreNode) {
+            return () -> {
+                data.restore();
+                return next;
+            };
+        } else if(node instanceof DataNode) { //its values are in the pool already
+            return () -> next;
+        } else if(node instanceof IfNode) {
+            BooleanSupplier condition = closures.condition(((IfNode) node).getCondition());
+            int target = labelAddresses.get(((IfNode) node).getTarget());
+            return () -> condition.getAsBoolean() ? call(next, target) : next;
+        } else if(node instanceof ForNode) {
+            return loop((ForNode) node);
+        } else if(node instanceof GosubNode) {
+            int target = labelAddresses.get(((GosubNode) node).getTarget());
+            return () -> call(next, target);
+        } else if(node instanceof NextNode) {
+            if(((NextNode) node).getLoop() == null)
+                return () -> { throw new RuntimeException("NEXT without FOR"); };
+            return pass(((NextNode) node).getLoop()); //straight into the next pass, the bounds were worked out already
+        } else if(node instanceof WhileNode) { //the loop is left for the statement after the label that closes it
+            BooleanSupplier condition = closures.condition(((WhileNode) node).getCondition());
+            int exit = labelPlaces.get(((WhileNode) node).getEnd()) + 1;
+            return () -> condition.getAsBoolean() ? next : exit;
+        } else if(node instanceof LabeledStatementNode && ((LabeledStatementNode) node).getLoop() != null) {
+            int head = whileHeads.get(((LabeledStatementNode) node).getLoop());
+            return () -> head;
+        } else if(node instanceof ReturnNode) {
+            return () -> {
+                if(returnDepth == 0)
+                    throw new RuntimeException("RETURN without GOSUB");
+                return returnStack[--returnDepth];
+            };
+        } else if(node instanceof EndNode) {
+            return () -> HALT;
+        } else {
+            return () -> { throw new RuntimeException("Unexpected statement"); };
+        }
+    }
+
+    private int call(int returnTo, int target) {
+        if(returnDepth == maxDepth)
+            throw new RuntimeException("GOSUB nested deeper than " + maxDepth);
+        if(returnDepth == returnStack.length)
+            returnStack = Arrays.copyOf(returnStack, returnDepth * 2);
+        returnStack[returnDepth++] = returnTo;
+        return target;
+    }
+
+    //Reaching the FOR works out the bounds that aren't literals into their slots, once for the whole loop
+    private Step loop(ForNode node) {
+        Step pass = pass(node);
+        if(node.isCounted())
+            return pass;
+        int bounds = node.getBoundSlot();
+        IntSupplier end = closures.intExpression(node.getEnd());
+        IntSupplier increment = closures.intExpression(node.getIncrement());
+        return () -> {
+            variables.setInt(bounds, end.getAsInt());
+            variables.setInt(bounds + 1, increment.getAsInt());
+            return pass.run();
+        };
+    }
+
+    //The first pass runs the initial assignment, every pass after it steps the variable. Once it reaches the end the
+    //loop carries on after its NEXT
+    private Step pass(ForNode node) {
+        Step pass = loopPasses.get(node);
+        if(pass != null)
+            return pass;
+        int slot = node.getInitialize().getVariable().getSlot();
+        int body = loopHeads.get(node) + 1;
+        Runnable initialize = closures.assignment(node.getInitialize());
+        int exit = node.getClosingNext() != null ? loopExits.get(node.getClosingNext()) : HALT;
+        if(node.isCounted()) {
+            int end = ((IntegerNode) node.getEnd()).getValue(), increment = ((IntegerNode) node.getIncrement()).getValue();
+            pass = () -> {
+                if(variables.hasInt(slot))
+                    variables.setInt(slot, variables.getInt(slot) + increment);
+                else
+                    initialize.run();
+                if(Interpreter.looping(variables.getInt(slot), end, increment))
+                    return body;
+                if(exit == HALT)
+                    throw new RuntimeException("FOR without NEXT");
+                return exit;
+            };
+        } else {
+            int bounds = node.getBoundSlot();
+            pass = () -> {
+                int increment = variables.getInt(bounds + 1);
+                if(variables.hasInt(slot))
+                    variables.setInt(slot, variables.getInt(slot) + increment);
+                else
+                    initialize.run();
+                if(Interpreter.looping(variables.getInt(slot), variables.getInt(bounds), increment))
+                    return body;
+                if(exit == HALT)
+                    throw new RuntimeException("FOR without NEXT");
+                return exit;
+            };
+        }
+        loopPasses.put(node, pass);
+        return pass;
+    }
+
+    private Step input(InputNode node, int next) {
+        var items = new InputItem[node.getValue().size()];
+        for(int i = 0; i < items.length; i++) {
+            Node item = node.getValue().get(i);
+            if(item instanceof StringNode) {
+                String prompt = ((StringNode) item).getValue();
+                items[i] = () -> output.print(prompt);
+            } else if(item instanceof VariableNode) {
+                int slot = ((VariableNode) item).getSlot();
+                switch(item.getType()) {
+                    case INT -> items[i] = () -> {
+                        output.beforeInput();
+                        variables.setInt(slot, input.readInt());
+                    };
+                    case FLOAT -> items[i] = () -> {
+                        output.beforeInput();
+                        variables.setFloat(slot, input.readFloat());
+                    };
+                    default -> items[i] = () -> {
+                        output.beforeInput();
+                        variables.setString(slot, input.readString());
+                    };
+                }
+            } else {
+                items[i] = () -> { throw new RuntimeException("Invalid input variables"); };
+            }
+        }
+        return () -> {
+            for(InputItem item : items) {
+                item.read();
+            }
+            return next;
+        };
+    }
+
+    //Each variable takes the next DATA value, the values throw if they ran out or are of another type
+    private Step read(ReadNode node, int next) {
+        var readList = node.getValue();
+        var items = new Runnable[readList.size()];
+        for(int i = 0; i < items.length; i++) {
+            int slot = readList.get(i).getSlot();
+            switch(readList.get(i).getType()) {
+                case INT -> items[i] = () -> variables.setInt(slot, data.readInt());
+                case FLOAT -> items[i] = () -> variables.setFloat(slot, data.readFloat());
+                default -> items[i] = () -> variables.setString(slot, data.readString());
+            }
+        }
+        return () -> {
+            for(Runnable item : items) {
+                item.run();
+            }
+            return next;
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package Interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//DATA values kept in a file of their own, written the way INPUT takes them: ints, floats and strings separated by
+//commas or white space. The file is read a block at a time as READ gets to it and never turned into nodes, files past
+//MAP_THRESHOLD are memory-mapped instead of read through a stream
+public class DataFile implements DataSource {
+
+    public static final long MAP_THRESHOLD = 16 * 1024 * 1024;
+
+    private final Path path;
+
+    //The whole file if it is mapped, null if it is read through a stream
+    private final MappedByteBuffer mapped;
+
+    private InputStream stream;
+    private BufferedInput values;
+
+    public DataFile(Path path) throws IOException {
+        this.path = path;
+        long size = Files.size(path);
+        if(size > MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+            try(var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); //stays valid after closing
+            }
+        } else {
+            mapped = null;
+        }
+        open();
+    }
+
+    @Override
+    public int readInt() {
+        next();
+        return values.readInt();
+    }
+
+    @Override
+    public float readFloat() {
+        next();
+        return values.readFloat();
+    }
+
+    @Override
+    public String readString() {
+        next();
+        return values.readString();
+    }
+
+    @Override
+    public void restore() {
+        try {
+            open();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void next() {
+        if(!values.hasNext())
+            throw new RuntimeException("Out of DATA");
+    }
+
+    //Starts reading from the first value
+    private void open() throws IOException {
+        if(stream != null)
+            stream.close();
+        stream = mapped != null ? stream(mapped.duplicate()) : Files.newInputStream(path);
+        values = new BufferedInput(stream, "DATA");
+    }
+
+    private static InputStream stream(ByteBuffer bytes) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if(!bytes.hasRemaining())
+                    return -1;
+                len = Math.min(len, bytes.remaining());
+                bytes.get(b, off, len);
+                return len;
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package Interpreter;
+
+import Parser.Node.*;
+
+import java.util.ArrayList;
+
+//The values of every DATA statement in the program, in the order they are written, with a cursor for READ. The values
+//are kept by type in plain arrays, so reading one is an index and a type check. A DataSource can be attached to carry
+//on from once the program's own values run out
+public class DataPool implements DataSource {
+
+    private final Type[] types;
+
+    //An int value, a float value's bits or a String value's index into strings
+    private final int[] values;
+    private final String[] strings;
+
+    //The next value READ takes
+    private int position = 0;
+
+    //What READ goes on to after the last value, null if running out is an error
+    private final DataSource rest;
+
+    public DataPool(StatementListNode statementList, DataSource rest) {
+        this(values(statementList), rest);
+    }
+
+    //Each value is an Integer, Float or String, the way Compiler.Program keeps them
+    public DataPool(Object[] data, DataSource rest) {
+        types = new Type[data.length];
+        values = new int[data.length];
+        var strings = new ArrayList<String>();
+        for(int i = 0; i < data.length; i++) {
+            if(data[i] instanceof Integer value) {
+                types[i] = Type.INT;
+                values[i] = value;
+            } else if(data[i] instanceof Float value) {
+                types[i] = Type.FLOAT;
+                values[i] = Float.floatToRawIntBits(value);
+            } else {
+                types[i] = Type.STRING;
+                values[i] = strings.size();
+                strings.add((String) data[i]);
+            }
+        }
+        this.strings = strings.toArray(new String[0]);
+        this.rest = rest;
+    }
+
+    //The values of all the DATA statements, labeled ones included
+    public static Object[] values(StatementListNode statementList) {
+        var data = new ArrayList<Object>();
+        for(Node search : statementList.getList()) {
+            if(search instanceof LabeledStatementNode)
+                search = ((LabeledStatementNode) search).getStatement();
+            if(!(search instanceof DataNode))
+                continue;
+            for(Node value : ((DataNode) search).getValue()) {
+                if(value instanceof IntegerNode) {
+                    data.add(((IntegerNode) value).getValue());
+                } else if(value instanceof FloatNode) {
+                    data.add(((FloatNode) value).getValue());
+                } else {
+                    data.add(((StringNode) value).getValue());
+                }
+            }
+        }
+        return data.toArray();
+    }
+
+    @Override
+    public int readInt() {
+        if(position == types.length)
+            return rest().readInt();
+        check(Type.INT);
+        return values[position++];
+    }
+
+    @Override
+    public float readFloat() {
+        if(position == types.length)
+            return rest().readFloat();
+        check(Type.FLOAT);
+        return Float.intBitsToFloat(values[position++]);
+    }
+
+    @Override
+    public String readString() {
+        if(position == types.length)
+            return rest().readString();
+        check(Type.STRING);
+        return strings[values[position++]];
+    }
+
+    @Override
+    public void restore() {
+        position = 0;
+        if(rest != null)
+            rest.restore();
+    }
+
+    private void check(Type type) {
+        if(types[position] != type)
+            throw new RuntimeException("Mismatched types in READ list");
+    }
+
+    private DataSource rest() {
+        if(rest == null)
+            throw new RuntimeException("Out of DATA");
+        return rest;
+    }
+}
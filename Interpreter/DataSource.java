@@ -0,0 +1,9 @@
+package Interpreter;
+
+//Where READ takes its values from, one after another. A read past the last value or into a variable of the wrong type
+//throws a RuntimeException
+public interface DataSource extends InputSource {
+
+    //Starts over from the first value, for RESTORE
+    void restore();
+}
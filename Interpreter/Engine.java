@@ -0,0 +1,7 @@
+package Interpreter;
+
+//Anything that can run a parsed BASIC program, lets Basic pick between the Interpreter and the faster engines
+public interface Engine {
+
+    void run();
+}
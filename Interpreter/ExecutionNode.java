@@ -0,0 +1,597 @@
+package Interpreter;
+
+import Parser.Node.*;
+
+//An expression as a tree of nodes that rewrite themselves while they run, the way a Truffle AST does. Every node starts
+//out uninitialized and on its first run replaces itself with the node for what it found: an int addition, a read of a
+//variable's slot, a call bound to its built-in.
+abstract class ExecutionNode {
+
+    private ExecutionNode parent;
+
+    int executeInt() {
+        throw new IllegalStateException(getClass().getSimpleName() + " doesn't evaluate to an int");
+    }
+
+    float executeFloat() {
+        throw new IllegalStateException(getClass().getSimpleName() + " doesn't evaluate to a float");
+    }
+
+    String executeString() {
+        throw new IllegalStateException(getClass().getSimpleName() + " doesn't evaluate to a string");
+    }
+
+    final <T extends ExecutionNode> T adopt(T child) {
+        ((ExecutionNode) child).parent = this;
+        return child;
+    }
+
+    //Puts the node where this one is in the tree, this one is never run again
+    final <T extends ExecutionNode> T replace(T node) {
+        ((ExecutionNode) node).parent = parent;
+        parent.replaceChild(this, node);
+        return node;
+    }
+
+    void replaceChild(ExecutionNode child, ExecutionNode node) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+    }
+
+    //The kinds of node the tree is made of so far, like IntAdd(IntRead, IntLiteral)
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    //The tree of an expression, everything in it still uninitialized
+    static Root tree(Node expression, Interpreter interpreter, VariableStore variables) {
+        var root = new Root();
+        root.child = root.adopt(new Uninitialized(expression, interpreter, variables));
+        return root;
+    }
+
+    //Holds the top of the tree, so that it can be replaced like any other node
+    static final class Root extends ExecutionNode {
+        private ExecutionNode child;
+
+        @Override
+        int executeInt() {
+            return child.executeInt();
+        }
+
+        @Override
+        float executeFloat() {
+            return child.executeFloat();
+        }
+
+        @Override
+        String executeString() {
+            return child.executeString();
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode node) {
+            this.child = node;
+        }
+
+        @Override
+        public String toString() {
+            return child.toString();
+        }
+    }
+
+    //Decides what it becomes the first time it runs, from the kind of expression and the type the TypeChecker gave it
+    static final class Uninitialized extends ExecutionNode {
+        private final Node expression;
+        private final Interpreter interpreter;
+        private final VariableStore variables;
+
+        Uninitialized(Node expression, Interpreter interpreter, VariableStore variables) {
+            this.expression = expression;
+            this.interpreter = interpreter;
+            this.variables = variables;
+        }
+
+        @Override
+        int executeInt() {
+            return replace(specialize()).executeInt();
+        }
+
+        @Override
+        float executeFloat() {
+            return replace(specialize()).executeFloat();
+        }
+
+        @Override
+        String executeString() {
+            return replace(specialize()).executeString();
+        }
+
+        private ExecutionNode child(Node expression) {
+            return new Uninitialized(expression, interpreter, variables);
+        }
+
+        private ExecutionNode specialize() {
+            if(expression instanceof IntegerNode) {
+                return new IntLiteral(((IntegerNode) expression).getValue());
+            } else if(expression instanceof FloatNode) {
+                return new FloatLiteral(((FloatNode) expression).getValue());
+            } else if(expression instanceof StringNode) {
+                return new StringLiteral(((StringNode) expression).getValue());
+            } else if(expression instanceof VariableNode && expression.getType() != null) {
+                int slot = ((VariableNode) expression).getSlot();
+                switch(expression.getType()) {
+                    case INT -> { return new IntRead(variables, slot); }
+                    case FLOAT -> { return new FloatRead(variables, slot); }
+                    default -> { return new StringRead(variables, slot); }
+                }
+            } else if(expression instanceof ArrayNode && expression.getType() != null) {
+                int slot = ((ArrayNode) expression).getSlot();
+                var indices = ((ArrayNode) expression).getIndices().stream().map(this::child)
+                        .toArray(ExecutionNode[]::new);
+                switch(expression.getType()) {
+                    case INT -> { return new IntElement(variables, slot, indices); }
+                    case FLOAT -> { return new FloatElement(variables, slot, indices); }
+                    default -> { return new StringElement(variables, slot, indices); }
+                }
+            } else if(expression instanceof MathOpNode && expression.getType() == Type.INT) {
+                var left = child(((MathOpNode) expression).getLeft());
+                var right = child(((MathOpNode) expression).getRight());
+                switch(((MathOpNode) expression).getOperation()) {
+                    case ADD -> { return new IntAdd(left, right); }
+                    case SUBTRACT -> { return new IntSubtract(left, right); }
+                    case MULTIPLY -> { return new IntMultiply(left, right); }
+                    case DIVIDE -> { return new IntDivide(left, right); }
+                }
+            } else if(expression instanceof MathOpNode && expression.getType() == Type.FLOAT) {
+                var left = child(((MathOpNode) expression).getLeft());
+                var right = child(((MathOpNode) expression).getRight());
+                switch(((MathOpNode) expression).getOperation()) {
+                    case ADD -> { return new FloatAdd(left, right); }
+                    case SUBTRACT -> { return new FloatSubtract(left, right); }
+                    case MULTIPLY -> { return new FloatMultiply(left, right); }
+                    case DIVIDE -> { return new FloatDivide(left, right); }
+                }
+            } else if(expression instanceof FunctionNode) {
+                var params = ((FunctionNode) expression).getParameters();
+                switch(((FunctionNode) expression).getFunctionName()) {
+                    case "random" -> { return new Random(); }
+                    case "val" -> { return new IntVal(child(params.get(0))); }
+                    case "val%" -> { return new FloatVal(child(params.get(0))); }
+                    case "left$" -> { return new Left(child(params.get(0)), child(params.get(1))); }
+                    case "right$" -> { return new Right(child(params.get(0)), child(params.get(1))); }
+                    case "mid$" -> { return new Mid(child(params.get(0)), child(params.get(1)), child(params.get(2))); }
+                    case "num$" -> {
+                        if(params.get(0).getType() == Type.INT)
+                            return new IntNum(child(params.get(0)));
+                        return new FloatNum(child(params.get(0)));
+                    }
+                }
+            }
+            return new Generic(expression, interpreter);
+        }
+    }
+
+    //Anything the other nodes don't cover, evaluated and rejected the way the Interpreter always did
+    static final class Generic extends ExecutionNode {
+        private final Node expression;
+        private final Interpreter interpreter;
+
+        Generic(Node expression, Interpreter interpreter) {
+            this.expression = expression;
+            this.interpreter = interpreter;
+        }
+
+        @Override
+        int executeInt() {
+            return interpreter.evaluateInt(expression);
+        }
+
+        @Override
+        float executeFloat() {
+            return interpreter.evaluateFloat(expression);
+        }
+
+        @Override
+        String executeString() {
+            return interpreter.evaluateString(expression);
+        }
+    }
+
+    static final class IntLiteral extends ExecutionNode {
+        private final int value;
+
+        IntLiteral(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int executeInt() {
+            return value;
+        }
+    }
+
+    static final class FloatLiteral extends ExecutionNode {
+        private final float value;
+
+        FloatLiteral(float value) {
+            this.value = value;
+        }
+
+        @Override
+        float executeFloat() {
+            return value;
+        }
+    }
+
+    static final class StringLiteral extends ExecutionNode {
+        private final String value;
+
+        StringLiteral(String value) {
+            this.value = value;
+        }
+
+        @Override
+        String executeString() {
+            return value;
+        }
+    }
+
+    static final class IntRead extends ExecutionNode {
+        private final VariableStore variables;
+        private final int slot;
+
+        IntRead(VariableStore variables, int slot) {
+            this.variables = variables;
+            this.slot = slot;
+        }
+
+        @Override
+        int executeInt() {
+            return variables.getInt(slot);
+        }
+    }
+
+    static final class FloatRead extends ExecutionNode {
+        private final VariableStore variables;
+        private final int slot;
+
+        FloatRead(VariableStore variables, int slot) {
+            this.variables = variables;
+            this.slot = slot;
+        }
+
+        @Override
+        float executeFloat() {
+            return variables.getFloat(slot);
+        }
+    }
+
+    static final class StringRead extends ExecutionNode {
+        private final VariableStore variables;
+        private final int slot;
+
+        StringRead(VariableStore variables, int slot) {
+            this.variables = variables;
+            this.slot = slot;
+        }
+
+        @Override
+        String executeString() {
+            return variables.getString(slot);
+        }
+    }
+
+    /*
+        Nodes with children, which they replace when a child rewrites itself
+     */
+
+    //An element of an array, its index children are worked out and checked one after the other into its offset
+    abstract static class Element extends ExecutionNode {
+        final VariableStore variables;
+        final int slot;
+        private final ExecutionNode[] indices;
+
+        Element(VariableStore variables, int slot, ExecutionNode[] indices) {
+            this.variables = variables;
+            this.slot = slot;
+            this.indices = indices;
+            for(ExecutionNode index : indices) {
+                adopt(index);
+            }
+        }
+
+        final int offset() {
+            int offset = 0;
+            for(int dimension = 0; dimension < indices.length; dimension++) {
+                offset = variables.index(slot, dimension, offset, indices[dimension].executeInt());
+            }
+            return offset;
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode node) {
+            for(int i = 0; i < indices.length; i++) {
+                if(indices[i] == child)
+                    indices[i] = node;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + java.util.Arrays.toString(indices);
+        }
+    }
+
+    static final class IntElement extends Element {
+        IntElement(VariableStore variables, int slot, ExecutionNode[] indices) {
+            super(variables, slot, indices);
+        }
+
+        @Override
+        int executeInt() {
+            return variables.getInt(slot, offset());
+        }
+    }
+
+    static final class FloatElement extends Element {
+        FloatElement(VariableStore variables, int slot, ExecutionNode[] indices) {
+            super(variables, slot, indices);
+        }
+
+        @Override
+        float executeFloat() {
+            return variables.getFloat(slot, offset());
+        }
+    }
+
+    static final class StringElement extends Element {
+        StringElement(VariableStore variables, int slot, ExecutionNode[] indices) {
+            super(variables, slot, indices);
+        }
+
+        @Override
+        String executeString() {
+            return variables.getString(slot, offset());
+        }
+    }
+
+    abstract static class Unary extends ExecutionNode {
+        ExecutionNode child;
+
+        Unary(ExecutionNode child) {
+            this.child = adopt(child);
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode node) {
+            this.child = node;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "(" + child + ")";
+        }
+    }
+
+    abstract static class Binary extends ExecutionNode {
+        ExecutionNode left, right;
+
+        Binary(ExecutionNode left, ExecutionNode right) {
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode node) {
+            if(left == child)
+                left = node;
+            else
+                right = node;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "(" + left + ", " + right + ")";
+        }
+    }
+
+    static final class IntAdd extends Binary {
+        IntAdd(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        int executeInt() {
+            return left.executeInt() + right.executeInt();
+        }
+    }
+
+    static final class IntSubtract extends Binary {
+        IntSubtract(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        int executeInt() {
+            return left.executeInt() - right.executeInt();
+        }
+    }
+
+    static final class IntMultiply extends Binary {
+        IntMultiply(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        int executeInt() {
+            return left.executeInt() * right.executeInt();
+        }
+    }
+
+    static final class IntDivide extends Binary {
+        IntDivide(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        int executeInt() {
+            return left.executeInt() / right.executeInt();
+        }
+    }
+
+    static final class FloatAdd extends Binary {
+        FloatAdd(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        float executeFloat() {
+            return left.executeFloat() + right.executeFloat();
+        }
+    }
+
+    static final class FloatSubtract extends Binary {
+        FloatSubtract(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        float executeFloat() {
+            return left.executeFloat() - right.executeFloat();
+        }
+    }
+
+    static final class FloatMultiply extends Binary {
+        FloatMultiply(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        float executeFloat() {
+            return left.executeFloat() * right.executeFloat();
+        }
+    }
+
+    static final class FloatDivide extends Binary {
+        FloatDivide(ExecutionNode left, ExecutionNode right) {
+            super(left, right);
+        }
+
+        @Override
+        float executeFloat() {
+            return left.executeFloat() / right.executeFloat();
+        }
+    }
+
+    /*
+        Calls bound to their built-in
+     */
+
+    static final class Random extends ExecutionNode {
+        @Override
+        int executeInt() {
+            return Interpreter.random();
+        }
+    }
+
+    static final class Left extends Binary {
+        Left(ExecutionNode data, ExecutionNode bound) {
+            super(data, bound);
+        }
+
+        @Override
+        String executeString() {
+            String data = left.executeString();
+            return Interpreter.left(data, right.executeInt());
+        }
+    }
+
+    static final class Right extends Binary {
+        Right(ExecutionNode data, ExecutionNode bound) {
+            super(data, bound);
+        }
+
+        @Override
+        String executeString() {
+            String data = left.executeString();
+            return Interpreter.right(data, right.executeInt());
+        }
+    }
+
+    static final class Mid extends ExecutionNode {
+        private ExecutionNode data, leftBound, rightBound;
+
+        Mid(ExecutionNode data, ExecutionNode leftBound, ExecutionNode rightBound) {
+            this.data = adopt(data);
+            this.leftBound = adopt(leftBound);
+            this.rightBound = adopt(rightBound);
+        }
+
+        @Override
+        String executeString() {
+            String value = data.executeString();
+            int left = leftBound.executeInt();
+            return Interpreter.mid(value, left, rightBound.executeInt());
+        }
+
+        @Override
+        void replaceChild(ExecutionNode child, ExecutionNode node) {
+            if(data == child)
+                data = node;
+            else if(leftBound == child)
+                leftBound = node;
+            else
+                rightBound = node;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "(" + data + ", " + leftBound + ", " + rightBound + ")";
+        }
+    }
+
+    static final class IntVal extends Unary {
+        IntVal(ExecutionNode child) {
+            super(child);
+        }
+
+        @Override
+        int executeInt() {
+            return Interpreter.intVal(child.executeString());
+        }
+    }
+
+    static final class FloatVal extends Unary {
+        FloatVal(ExecutionNode child) {
+            super(child);
+        }
+
+        @Override
+        float executeFloat() {
+            return Interpreter.floatVal(child.executeString());
+        }
+    }
+
+    static final class IntNum extends Unary {
+        IntNum(ExecutionNode child) {
+            super(child);
+        }
+
+        @Override
+        String executeString() {
+            return Interpreter.num(child.executeInt());
+        }
+    }
+
+    static final class FloatNum extends Unary {
+        FloatNum(ExecutionNode child) {
+            super(child);
+        }
+
+        @Override
+        String executeString() {
+            return Interpreter.num(child.executeFloat());
+        }
+    }
+}
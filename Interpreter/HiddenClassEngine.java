@@ -0,0 +1,58 @@
+package Interpreter;
+
+import Compiler.JavaEmitter;
+import Compiler.JavaSourceCompiler;
+import Parser.Node.StatementListNode;
+
+import java.lang.invoke.MethodHandles;
+
+//Runs a program as JVM bytecode of its own: the JavaEmitter turns it into a Java class, javac compiles that in memory
+//and it is loaded as a hidden class, which HotSpot then compiles like any other hot code. Programs that can't be turned
+//into a class, a JDK without javac, or DATA from outside the program, fall back to the Interpreter.
+public class HiddenClassEngine implements Engine {
+
+    private final Engine engine;
+
+    //Whether the program got its own class or is run by the Interpreter
+    private final boolean compiled;
+
+    public HiddenClassEngine(StatementListNode statementList) {
+        this(statementList, new BufferedOutput(), new BufferedInput(), null);
+    }
+
+    public HiddenClassEngine(StatementListNode statementList, OutputSink output, InputSource input,
+                             DataSource moreData) {
+        this(statementList, Interpreter.MAX_DEPTH, output, input, moreData);
+    }
+
+    //The class writes to output and reads from input like the Interpreter would. It only has the DATA written in the
+    //program, so moreData is left to the Interpreter. So are programs whose GOSUBs can nest deeper than maxDepth, which
+    //stops them when they get there
+    public HiddenClassEngine(StatementListNode statementList, int maxDepth, OutputSink output, InputSource input,
+                             DataSource moreData) {
+        Engine engine;
+        try {
+            if(moreData != null)
+                throw new UnsupportedOperationException("DATA from outside the program");
+            //The hidden class has to be in this class's package to be defined through its Lookup
+            String source = new JavaEmitter().emitForEngine(statementList, "CompiledProgram", maxDepth);
+            byte[] classFile = new JavaSourceCompiler().compile("Interpreter.CompiledProgram", source);
+            var lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            engine = ((Runnable) lookup.lookupClass().getConstructor(OutputSink.class, InputSource.class)
+                    .newInstance(output, input))::run;
+        } catch(UnsupportedOperationException | IllegalStateException | ReflectiveOperationException e) {
+            engine = new Interpreter(statementList, Interpreter.COMPILE_THRESHOLD, maxDepth, output, input, moreData);
+        }
+        this.engine = engine;
+        compiled = !(engine instanceof Interpreter);
+    }
+
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    @Override
+    public void run() {
+        engine.run();
+    }
+}
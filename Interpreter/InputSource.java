@@ -0,0 +1,12 @@
+package Interpreter;
+
+//Where INPUT reads its values from. An engine keeps one for the whole program, so nothing read ahead for one INPUT is
+//lost to the next. Each read throws a RuntimeException saying what was expected and what was found instead
+public interface InputSource {
+
+    int readInt();
+
+    float readFloat();
+
+    String readString();
+}
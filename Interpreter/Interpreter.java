@@ -1,27 +1,27 @@
 package Interpreter;
 
+import Parser.Linker;
 import Parser.Node.*;
+import Parser.SlotResolver;
+import Parser.TypeChecker;
 
 import java.util.*;
 
-public class Interpreter {
+public class Interpreter implements Engine {
 
-    private final StatementListNode statementList;
-
-    //Holds all the elements that are in the DataNode's linked list, will act as a queue
-    private final LinkedList<Node> dataQueue;
+    //How often a label's statement gets called or a FOR loops back before it is compiled into closures
+    public static final int COMPILE_THRESHOLD = 1000;
 
-    //Maps all the gosub names to their node's
-    private final HashMap<String, LabeledStatementNode> gosubMap;
+    //How deep GOSUBs and FOR loops can nest before the program is stopped with an error
+    public static final int MAX_DEPTH = 4096;
 
-    //Maps variable ints to their value
-    private final HashMap<String, Integer> intMap;
+    private final StatementListNode statementList;
 
-    //Maps variable floats to their value
-    private final HashMap<String, Float> floatMap;
+    //The values of every DATA statement, READ takes them one at a time
+    private final DataSource data;
 
-    //Maps variable strings to their value
-    private final HashMap<String, String> stringMap;
+    //Holds the value of every variable by its slot
+    private final VariableStore variables;
 
     //tells us whether we have encountered an end node
     private boolean end = false;
@@ -29,54 +29,77 @@ public class Interpreter {
     //The statement we are currently interpreting
     private StatementNode currentStatement;
 
-    //Stack will be used to go back and forth in code
-    private final Stack<StatementNode> statementStack;
+    //The statement each called label goes back to, the innermost call on top
+    private StatementNode[] returnStack = new StatementNode[16];
+    private int returnDepth = 0;
+
+    //The FOR loops that are running, the innermost one on top
+    private ForNode[] loopStack = new ForNode[16];
+    private int loopDepth = 0;
+
+    private final int maxDepth;
+
+    //Where PRINT and the INPUT prompts write to, flushed when the program stops
+    private final OutputSink output;
+
+    //Where INPUT reads from, the same one for every INPUT statement
+    private final InputSource input;
+
+    //The label a GOSUB or IF just called, run() runs its statement next instead of the statements recursing
+    private LabeledStatementNode called;
+
+    //Hot labels and loops are compiled into closures over the same variables, so both can run one after the other
+    private final ClosureCompiler closures;
+    private final int compileThreshold;
+
+    //How often each label and loop ran interpreted so far
+    private final HashMap<Node, Integer> executions = new HashMap<>();
+
+    //The compiled code of every label and loop that got hot, null for one that can't be compiled so it isn't tried again
+    private final HashMap<Node, Runnable> compiled = new HashMap<>();
+
+    //Every expression that ran so far as a tree that specializes itself to what it sees, by the expression's node
+    private final IdentityHashMap<Node, ExecutionNode> trees = new IdentityHashMap<>();
 
     public Interpreter(StatementListNode statementList) {
-        this.statementList = statementList;
-        gosubMap = gosubWalk();
-        dataQueue = dataWalk();
-        intMap = new HashMap<String, Integer>();
-        floatMap = new HashMap<String, Float>();
-        stringMap = new HashMap<String, String>();
-        statementStack = new Stack<StatementNode>();
-        walkNext();
-    }
-
-    //Makes sure every statement node has a next
-    private void walkNext() {
-        StatementNode current = (StatementNode) statementList.getList().get(0);
-        for(int i = 1; i < statementList.getList().size(); i++) {
-            current.setNext((StatementNode) statementList.getList().get(i));
-            current = current.next();
-        }
-        current.setNext(null); //makes sure the linked list is terminated with null
+        this(statementList, COMPILE_THRESHOLD);
     }
 
-    //Walks the tree until a data statement is found, can return empty queue if none are used
-    private LinkedList<Node> dataWalk() {
-        var queue = new LinkedList<Node>();
-        for(Node search: statementList.getList()) {
-            if(search instanceof DataNode) {
-                queue.addAll(((DataNode) search).getValue());
-                break; //there can only be one DATA statement in a basic file
-            }
-        }
-        return queue;
+    //A threshold of Integer.MAX_VALUE keeps the whole program interpreted
+    public Interpreter(StatementListNode statementList, int compileThreshold) {
+        this(statementList, compileThreshold, MAX_DEPTH);
     }
 
-    //Walks the tree finding all the labels, can return an empty hashmap if there are none used
-    private HashMap<String, LabeledStatementNode> gosubWalk() {
-        var gosubMap = new HashMap<String, LabeledStatementNode>();
-        for(Node search : statementList.getList()) {
-            if(search instanceof LabeledStatementNode) {
-                gosubMap.put(((LabeledStatementNode) search).getName(), (LabeledStatementNode) search);
-            }
-        }
-        return gosubMap;
+    public Interpreter(StatementListNode statementList, int compileThreshold, int maxDepth) {
+        this(statementList, compileThreshold, maxDepth, new BufferedOutput());
+    }
+
+    public Interpreter(StatementListNode statementList, int compileThreshold, int maxDepth, OutputSink output) {
+        this(statementList, compileThreshold, maxDepth, output, new BufferedInput());
     }
 
-    private int evaluateInt(Node node) {
+    public Interpreter(StatementListNode statementList, int compileThreshold, int maxDepth, OutputSink output,
+                       InputSource input) {
+        this(statementList, compileThreshold, maxDepth, output, input, null);
+    }
+
+    //READ goes on to the values of moreData once the DATA statements' run out, if it isn't null
+    public Interpreter(StatementListNode statementList, int compileThreshold, int maxDepth, OutputSink output,
+                       InputSource input, DataSource moreData) {
+        this.statementList = statementList;
+        new Linker().link(statementList); //connects statements to each other and labels to where they are used
+        new TypeChecker().check(statementList); //type errors are found here, before anything runs
+        data = new DataPool(statementList, moreData);
+        variables = new VariableStore(new SlotResolver().resolve(statementList));
+        closures = new ClosureCompiler(variables, output);
+        this.output = output;
+        this.input = input;
+        this.compileThreshold = compileThreshold;
+        this.maxDepth = maxDepth;
+    }
+
+    //The generic path for expressions, which the self-specializing trees fall back to for anything they don't cover
+    int evaluateInt(Node node) {
         if(node instanceof IntegerNode) {
            return ((IntegerNode) node).getValue();
         } else if(node instanceof MathOpNode) {
@@ -91,11 +114,9 @@ public class Interpreter {
                 default -> throw new RuntimeException("Invalid math operator");
             }
         } else if(node instanceof VariableNode) {
-            if(intMap.containsKey(node.toString())) {
-                return intMap.get(node.toString());
-            } else {
-                throw new RuntimeException("Use of unassigned variable"); //while all variables are global, they have to be assigned
-            }
+            return variables.getInt(((VariableNode) node).getSlot());
+        } else if(node instanceof ArrayNode) {
+            return variables.getInt(((ArrayNode) node).getSlot(), offset((ArrayNode) node));
         } else if (node instanceof FunctionNode) {
             if(((FunctionNode) node).getFunctionName().equals("random")) { //this is the only function that can return an integer
                 return random();
@@ -110,7 +131,7 @@ public class Interpreter {
         }
     }
 
-    private float evaluateFloat(Node node) {
+    float evaluateFloat(Node node) {
         if(node instanceof FloatNode) {
             return ((FloatNode) node).getValue();
         } else if(node instanceof MathOpNode) {
@@ -125,11 +146,9 @@ public class Interpreter {
                 default -> throw new RuntimeException("Invalid math operator");
             }
         } else if(node instanceof VariableNode) {
-            if(floatMap.containsKey(node.toString())) {
-                return floatMap.get(node.toString());
-            } else {
-                throw new RuntimeException("Use of unassigned variable"); //while all variables are global, they have to be assigned
-            }
+            return variables.getFloat(((VariableNode) node).getSlot());
+        } else if(node instanceof ArrayNode) {
+            return variables.getFloat(((ArrayNode) node).getSlot(), offset((ArrayNode) node));
         } else if (node instanceof FunctionNode) {
             if(((FunctionNode) node).getFunctionName().equals("val%")) { //val% is the only built-in that returns a float
                 Node params = ((FunctionNode) node).getParameters().get(0);
@@ -142,17 +161,15 @@ public class Interpreter {
         }
     }
 
-    private String evaluateString(Node node) {
+    String evaluateString(Node node) {
         if(node instanceof StringNode) {
             return ((StringNode) node).getValue();
         } else if(node instanceof VariableNode) {
-            if(stringMap.containsKey(node.toString())) {
-                return stringMap.get(node.toString());
-            } else {
-                throw new RuntimeException("Use of unassigned variable"); //while all variables are global, they have to be assigned
-            }
+            return variables.getString(((VariableNode) node).getSlot());
+        } else if(node instanceof ArrayNode) {
+            return variables.getString(((ArrayNode) node).getSlot(), offset((ArrayNode) node));
         } else if(node instanceof FunctionNode) {
-            var params = ((FunctionNode) node).getParameters(); //The types for the parameters were already checked in the parser
+            var params = ((FunctionNode) node).getParameters(); //The types for the parameters were already checked by the TypeChecker
             if(((FunctionNode) node).getFunctionName().equals("left$")) {
                 return left(evaluateString(params.get(0)), evaluateInt(params.get(1)));
             } else if(((FunctionNode) node).getFunctionName().equals("right$")) {
@@ -160,11 +177,9 @@ public class Interpreter {
             } else if(((FunctionNode) node).getFunctionName().equals("mid$")) {
                 return mid(evaluateString(params.get(0)), evaluateInt(params.get(1)), evaluateInt(params.get(2)));
             } else if(((FunctionNode) node).getFunctionName().equals("num$")) {
-                try {
-                    return num(evaluateInt(params.get(0))); //trys to see if it wants to convert an int
-                } catch(Exception e) {
-                    return num(evaluateFloat(params.get(0))); //else they would want to convert a float
-                }
+                if(params.get(0).getType() == Type.INT) //the TypeChecker settled which kind of number it converts
+                    return num(evaluateInt(params.get(0)));
+                return num(evaluateFloat(params.get(0)));
             } else {
                 throw new RuntimeException("Invalid string variable assignment");
             }
@@ -173,81 +188,95 @@ public class Interpreter {
         }
     }
 
-    //returns the type of variable i.e. String, int, float
-    private String evaluateVariableType(VariableNode node) {
-        char type = node.toString().charAt(node.toString().length() - 1); //the last character of a variable signifies its type
-        switch(type) {
-            case '%' -> { return "float"; }
-            case '$' -> { return "string"; }
-            default  -> { return "int"; }
+    //The expression's self-specializing tree, built the first time the expression runs
+    private ExecutionNode tree(Node expression) {
+        ExecutionNode tree = trees.get(expression);
+        if(tree == null) {
+            tree = ExecutionNode.tree(expression, this, variables);
+            trees.put(expression, tree);
+        }
+        return tree;
+    }
+
+    //The kinds of node the expression's tree is made of so far, like IntAdd(IntRead, IntLiteral). null if it never ran
+    public String describeTree(Node expression) {
+        ExecutionNode tree = trees.get(expression);
+        return tree != null ? tree.toString() : null;
+    }
+
+    //Where the element is in its array, each index is worked out and checked before the next one
+    int offset(ArrayNode node) {
+        int offset = 0, dimension = 0;
+        for(Node index : node.getIndices()) {
+            offset = variables.index(node.getSlot(), dimension++, offset, tree(index).executeInt());
         }
+        return offset;
     }
 
+    //Each variable takes the next DATA value, the values throw if they ran out or are of another type
     private void evaluateRead(ReadNode node) {
-        var readList = node.getValue();
-        if(readList.size() != dataQueue.size())
-            throw new RuntimeException("READ list size does not match DATA list size"); //READ needs to have same amount of variables as DATA
-        int dataSize = dataQueue.size();
-        for(int i = 0; i < dataSize; i++) {
-            Node data = dataQueue.remove(); //removes the first inputted element in queue style
-            if(data instanceof IntegerNode) {
-                if(evaluateVariableType(readList.get(i)).equals("int")) { //checks to see if read variable is the correct type
-                    intMap.put(readList.get(i).toString(), evaluateInt(data));
-                } else {
-                    throw new RuntimeException("Mismatched types in READ list");
-                }
-            } else if(data instanceof FloatNode) {
-                if(evaluateVariableType(readList.get(i)).equals("float")) { //checks to see if read variable is the correct type
-                    floatMap.put(readList.get(i).toString(), evaluateFloat(data));
-                } else {
-                    throw new RuntimeException("Mismatched types in READ list");
-                }
-            } else {
-                if(evaluateVariableType(readList.get(i)).equals("string")) { //checks to see if read variable is the correct type
-                    stringMap.put(readList.get(i).toString(), evaluateString(data));
-                } else {
-                    throw new RuntimeException("Mismatched types in READ list");
-                }
+        for(VariableNode variable : node.getValue()) {
+            switch(variable.getType()) {
+                case INT -> variables.setInt(variable.getSlot(), data.readInt());
+                case FLOAT -> variables.setFloat(variable.getSlot(), data.readFloat());
+                default -> variables.setString(variable.getSlot(), data.readString());
             }
         }
     }
 
     private void evaluateAssignment(AssignmentNode node) {
-        String variableType = evaluateVariableType(node.getVariable());
-        if(variableType.equals("int")) {
-            intMap.put(node.getVariable().toString(), evaluateInt(node.getExpression())); //updating or adding the variable
-        } else if(variableType.equals("float")) {
-            floatMap.put(node.getVariable().toString(), evaluateFloat(node.getExpression())); //updating or adding the variable
-        } else {
-            stringMap.put(node.getVariable().toString(), evaluateString(node.getExpression())); //updating or adding the variable
+        int slot = node.getVariable().getSlot();
+        switch(node.getVariable().getType()) { //updating or adding the variable
+            case INT -> variables.setInt(slot, tree(node.getExpression()).executeInt());
+            case FLOAT -> variables.setFloat(slot, tree(node.getExpression()).executeFloat());
+            default -> variables.setString(slot, tree(node.getExpression()).executeString());
+        }
+    }
+
+    //The value is worked out before the indices, the other engines do it in the same order
+    private void evaluateArrayAssignment(ArrayAssignmentNode node) {
+        var element = node.getElement();
+        int slot = element.getSlot();
+        switch(element.getType()) {
+            case INT -> {
+                int value = tree(node.getExpression()).executeInt();
+                variables.setInt(slot, offset(element), value);
+            }
+            case FLOAT -> {
+                float value = tree(node.getExpression()).executeFloat();
+                variables.setFloat(slot, offset(element), value);
+            }
+            default -> {
+                String value = tree(node.getExpression()).executeString();
+                variables.setString(slot, offset(element), value);
+            }
+        }
+    }
+
+    //Each array gets all of its sizes worked out and is made before the next one's are
+    private void evaluateDim(DimNode node) {
+        for(ArrayNode array : node.getArrays()) {
+            int[] sizes = new int[array.getIndices().size()];
+            int dimension = 0;
+            for(Node size : array.getIndices()) {
+                sizes[dimension++] = tree(size).executeInt();
+            }
+            variables.dim(array.getSlot(), sizes);
         }
     }
 
     private void evaluateInput(InputNode node) {
-        Scanner getInput = new Scanner(System.in);
         var inputList = node.getValue();
-        for(Node input : inputList) {
-           if(input instanceof StringNode) {
-               System.out.print(((StringNode) input).getValue()); //String literals are straight up printed
-           } else if(input instanceof VariableNode) {
-               if(evaluateVariableType((VariableNode) input).equals("int")) {
-                   if(getInput.hasNextInt()) { //The next token has to be an int here
-                       intMap.put(input.toString(), getInput.nextInt());
-                   } else {
-                       throw new RuntimeException("Expected input int"); //There is a mismatch in variable types
-                   }
-               } else if(evaluateVariableType((VariableNode) input).equals("float")) {
-                   if(getInput.hasNextFloat()) { //The next token has to be a float here
-                       floatMap.put(input.toString(), getInput.nextFloat());
-                   } else {
-                       throw new RuntimeException("Expected input float"); //There is a mismatch in variable types
-                   }
-               } else {
-                   if(getInput.hasNext()) { //Assume the next token has to be a string
-                       stringMap.put(input.toString(), getInput.next());
-                   } else {
-                       throw new RuntimeException("Expected input string"); //There is a mismatch in variable types
-                   }
+        for(Node item : inputList) {
+           if(item instanceof StringNode) {
+               output.print(((StringNode) item).getValue()); //String literals are straight up printed
+           } else if(item instanceof VariableNode) {
+               output.beforeInput(); //the prompts have to be seen before anything is typed
+               int slot = ((VariableNode) item).getSlot();
+               switch(item.getType()) { //the input throws if the next value isn't of the variable's type
+                   case INT -> variables.setInt(slot, input.readInt());
+                   case FLOAT -> variables.setFloat(slot, input.readFloat());
+                   default -> variables.setString(slot, input.readString());
                }
            } else {
                throw new RuntimeException("Invalid input variables");
@@ -259,67 +288,334 @@ public class Interpreter {
         var printList = node.getList();
         for(Node print : printList) {
             if(print instanceof StringNode) {
-                System.out.println(((StringNode) print).getValue());
+                output.println(((StringNode) print).getValue());
             } else if(print instanceof VariableNode) {
-                var type = evaluateVariableType((VariableNode) print);
-                if(type.equals("int") & intMap.containsKey(print.toString())) {
-                    System.out.println(intMap.get(print.toString()));
-                } else if(type.equals("float") & floatMap.containsKey(print.toString())) {
-                    System.out.println(floatMap.get(print.toString()));
-                } else if(type.equals("string") & stringMap.containsKey(print.toString())) {
-                    System.out.println(stringMap.get(print.toString()));
+                var type = print.getType();
+                int slot = ((VariableNode) print).getSlot();
+                if(type == Type.INT & variables.hasInt(slot)) {
+                    output.println(variables.getInt(slot));
+                } else if(type == Type.FLOAT & variables.hasFloat(slot)) {
+                    output.println(variables.getFloat(slot));
+                } else if(type == Type.STRING & variables.hasString(slot)) {
+                    output.println(variables.getString(slot));
                 } else {
                     String exception = print + " not declared";
                     throw new RuntimeException(exception); //Variable has not been assigned anything yet or doesn't exist
                 }
+            } else if(print instanceof ArrayNode) { //elements always have a value
+                int slot = ((ArrayNode) print).getSlot();
+                switch(print.getType()) {
+                    case INT -> output.println(variables.getInt(slot, offset((ArrayNode) print)));
+                    case FLOAT -> output.println(variables.getFloat(slot, offset((ArrayNode) print)));
+                    default -> output.println(variables.getString(slot, offset((ArrayNode) print)));
+                }
             }
         }
     }
 
     private void evaluateIf(IfNode node) {
         if(evaluateBoolean(node.getCondition())) { //skip over the node if it is false
-            if(gosubMap.containsKey(node.getLabel())) {
-                interpret(gosubMap.get(node.getLabel()).getStatement());
-            } else {
-                throw new RuntimeException("Label does not exist");
-            }
+            call(node.getTarget()); //the Linker already made sure the label exists
         }
     }
 
+    //A FOR reached from the statement before it works out its bounds once, a loop back from its NEXT never does
     private void evaluateFor(ForNode node) {
-        String variable = node.getInitialize().getVariable().toString(); //gets the name of the variable that the loop is incrementing
-        if(!intMap.containsKey(variable)) { //looks to see if we are on the first iteration or not
-            evaluateAssignment(node.getInitialize());
+        enterLoop(node);
+        Runnable code = compiled.get(node);
+        if(code != null) { //a loop that got hot runs compiled from then on, and then carries on after its NEXT
+            code.run();
+            currentStatement = node.getClosingNext();
+        } else if(looping(node)) {
+            if(loopDepth == maxDepth)
+                throw new RuntimeException("FOR loops nested deeper than " + maxDepth);
+            if(loopDepth == loopStack.length)
+                loopStack = Arrays.copyOf(loopStack, loopDepth * 2);
+            loopStack[loopDepth++] = node; //marking the beginning of the for loop
         } else {
-            int value = intMap.get(variable) + node.getIncrement();
-            intMap.replace(variable, value); //increments the variable by the given step
+            exitLoop(node);
         }
+    }
 
-        //checking to see if we should end the for loop or continue another iteration
-        if(intMap.get(variable) >= node.getEnd()) {
-            while(!(currentStatement instanceof NextNode)) {
-                currentStatement = currentStatement.next();
-            }
+    //NEXT goes straight back to the innermost FOR without running it again, the loop stays on the stack for as long as
+    //it keeps going
+    private void evaluateNext() {
+        if(loopDepth == 0)
+            throw new RuntimeException("NEXT without FOR");
+        var loop = loopStack[loopDepth - 1];
+        currentStatement = loop; //the body starts after the FOR
+        Runnable code = hot(loop); //every loop back counts towards compiling the loop
+        stepLoop(loop);
+        if(code != null) {
+            loopDepth--;
+            code.run();
+            currentStatement = loop.getClosingNext();
+        } else if(!looping(loop)) {
+            loopDepth--;
+            exitLoop(loop);
+        }
+    }
+
+    //Works out the bounds that aren't literals into their slots, then runs the loop's first pass
+    private void enterLoop(ForNode node) {
+        if(!node.isCounted()) {
+            variables.setInt(node.getBoundSlot(), tree(node.getEnd()).executeInt());
+            variables.setInt(node.getBoundSlot() + 1, tree(node.getIncrement()).executeInt());
+        }
+        stepLoop(node);
+    }
+
+    //The first pass runs the initial assignment, every pass after it, even one of another FOR on the same variable,
+    //only steps it
+    private void stepLoop(ForNode node) {
+        int variable = node.getInitialize().getVariable().getSlot(); //gets the slot of the variable that the loop is incrementing
+        if(!variables.hasInt(variable)) { //looks to see if we are on the first iteration or not
+            evaluateAssignment(node.getInitialize());
         } else {
-            statementStack.push(node); //marking the beginning of the for loop
+            variables.setInt(variable, variables.getInt(variable) + loopIncrement(node)); //increments the variable by the given step
+        }
+    }
+
+    //checking to see if we should end the for loop or continue another iteration
+    private boolean looping(ForNode node) {
+        return looping(variables.getInt(node.getInitialize().getVariable().getSlot()), loopEnd(node), loopIncrement(node));
+    }
+
+    //A loop with a negative step counts down, either way it stops once the variable reaches its end
+    static boolean looping(int value, int end, int increment) {
+        return increment < 0 ? value > end : value < end;
+    }
+
+    private int loopEnd(ForNode node) {
+        return node.isCounted() ? ((IntegerNode) node.getEnd()).getValue() : variables.getInt(node.getBoundSlot());
+    }
+
+    private int loopIncrement(ForNode node) {
+        return node.isCounted() ? ((IntegerNode) node.getIncrement()).getValue() : variables.getInt(node.getBoundSlot() + 1);
+    }
+
+    private void exitLoop(ForNode node) {
+        if(node.getClosingNext() == null)
+            throw new RuntimeException("FOR without NEXT");
+        currentStatement = node.getClosingNext(); //the loop continues after its NEXT
+    }
+
+    //WHILE only goes into its loop while the condition holds, otherwise the program carries on after the label closing it
+    private void evaluateWhile(WhileNode node) {
+        Runnable code = compiled.get(node);
+        if(code != null) { //a loop that got hot runs compiled from then on
+            code.run();
+            currentStatement = node.getEnd();
+        } else if(!evaluateBoolean(node.getCondition())) {
+            currentStatement = node.getEnd();
+        }
+    }
+
+    //Reaching the label that closes a WHILE tests the condition right there and goes straight back into the loop if it
+    //still holds, the WHILE itself isn't run again
+    private void evaluateLoopEnd(LabeledStatementNode label) {
+        var loop = label.getLoop();
+        Runnable code = hot(loop); //every loop back counts towards compiling the loop
+        if(code != null) {
+            code.run();
+        } else if(evaluateBoolean(loop.getCondition())) {
+            currentStatement = loop; //the body starts after the WHILE
         }
     }
 
     private void evaluateGosub(GosubNode node) {
-        if(gosubMap.containsKey(node.getIdentifier())) {
-            interpret(gosubMap.get(node.getIdentifier()).getStatement());
-        } else {
-            throw new RuntimeException("Label does not exist");
+        call(node.getTarget());
+    }
+
+    //Marks where the program carries on once the label's statement is done, the statement itself is run by runCalls()
+    private void call(LabeledStatementNode label) {
+        if(returnDepth == maxDepth)
+            throw new RuntimeException("GOSUB nested deeper than " + maxDepth);
+        if(returnDepth == returnStack.length)
+            returnStack = Arrays.copyOf(returnStack, returnDepth * 2);
+        returnStack[returnDepth++] = currentStatement;
+        called = label;
+    }
+
+    //Runs the statement of the label that was called, and of every label that statement calls in turn. A label only has
+    //the one statement, so nothing is left to do in a label once it calls another and the calls can be run one after
+    //the other instead of inside each other. A label calling itself then ends at maxDepth rather than in a
+    //StackOverflowError
+    private void runCalls() {
+        while(called != null && !end) {
+            var label = called;
+            called = null;
+            Runnable code = hot(label);
+            if(code != null) {
+                code.run();
+            } else {
+                interpret(label.getStatement());
+            }
         }
+        called = null;
+    }
+
+    //runs the statement of a label for compiled code, which carries on right after it. Compiled code only calls labels
+    //that don't call back into themselves, so this only goes as deep as there are labels
+    private void evaluateLabel(LabeledStatementNode label) {
+        int depth = returnDepth;
+        call(label);
+        runCalls();
+        returnDepth = depth;
+    }
+
+    //Counts a run of the label or loop and returns its compiled code, which is null until it got hot
+    private Runnable hot(Node region) {
+        if(compiled.containsKey(region))
+            return compiled.get(region);
+        if(executions.merge(region, 1, Integer::sum) < compileThreshold)
+            return null;
+        executions.remove(region);
+        Runnable code;
+        if(region instanceof ForNode)
+            code = compileLoop((ForNode) region);
+        else if(region instanceof WhileNode)
+            code = compileWhile((WhileNode) region);
+        else
+            code = compileStatement(((LabeledStatementNode) region).getStatement(), new HashSet<>());
+        compiled.put(region, code);
+        return code;
+    }
+
+    //The rest of a FOR loop once its variable was set or stepped, until the variable reaches the end. Only loops whose
+    //body runs straight through compile, the interpreter carries on after the NEXT once the code returns
+    private Runnable compileLoop(ForNode node) {
+        if(node.getClosingNext() == null)
+            return null;
+        Runnable[] statements = compileBody(node, node.getClosingNext());
+        if(statements == null)
+            return null;
+        int slot = node.getInitialize().getVariable().getSlot();
+        return () -> {
+            //the bounds stay the same for the whole loop, only the variable has to go through the store since the body
+            //can read and change it
+            int end = loopEnd(node), increment = loopIncrement(node);
+            while(looping(variables.getInt(slot), end, increment)) {
+                for(Runnable statement : statements) {
+                    statement.run();
+                }
+                variables.setInt(slot, variables.getInt(slot) + increment);
+            }
+        };
+    }
+
+    //A whole WHILE loop, its condition tested before every pass. Like a FOR it only compiles if its body runs straight
+    //through, and only if it is the loop its label closes
+    private Runnable compileWhile(WhileNode node) {
+        if(node.getEnd().getLoop() != node)
+            return null;
+        Runnable[] statements = compileBody(node, node.getEnd());
+        if(statements == null)
+            return null;
+        var condition = closures.condition(node.getCondition());
+        return () -> {
+            while(condition.getAsBoolean()) {
+                for(Runnable statement : statements) {
+                    statement.run();
+                }
+            }
+        };
+    }
+
+    //The statements after a loop's head up to the one that closes it, or null if one of them can't be compiled. Nested
+    //loops compile along, the statement after one is the one after what closes it
+    private Runnable[] compileBody(StatementNode head, StatementNode end) {
+        var body = new ArrayList<Runnable>();
+        for(StatementNode statement = head.next(); statement != end; ) {
+            if(statement == null)
+                return null;
+            Runnable code;
+            if(statement instanceof ForNode) {
+                var loop = (ForNode) statement;
+                var rest = compileLoop(loop);
+                code = rest == null ? null : () -> {
+                    enterLoop(loop);
+                    rest.run();
+                };
+                statement = rest != null ? loop.getClosingNext().next() : null;
+            } else if(statement instanceof WhileNode) {
+                code = compileWhile((WhileNode) statement);
+                statement = code != null ? ((WhileNode) statement).getEnd().next() : null;
+            } else {
+                code = compileStatement(statement, new HashSet<>());
+                statement = statement.next();
+            }
+            if(code == null)
+                return null;
+            body.add(code);
+        }
+        return body.toArray(new Runnable[0]);
+    }
+
+    //A statement that always carries on with the one after it, or null for anything that jumps, returns or ends the
+    //program, directly or in a label it calls. Calling is the labels on the way here, which catches labels calling back
+    private Runnable compileStatement(StatementNode node, HashSet<LabeledStatementNode> calling) {
+        if(node instanceof AssignmentNode) {
+            return closures.assignment((AssignmentNode) node);
+        } else if(node instanceof ArrayAssignmentNode) {
+            return closures.arrayAssignment((ArrayAssignmentNode) node);
+        } else if(node instanceof DimNode) {
+            return closures.dim((DimNode) node);
+        } else if(node instanceof PrintNode) {
+            var printList = ((PrintNode) node).getList();
+            Runnable[] items = new Runnable[printList.size()];
+            for(int i = 0; i < items.length; i++) {
+                items[i] = closures.print(printList.get(i));
+            }
+            return () -> {
+                for(Runnable item : items) {
+                    item.run();
+                }
+            };
+        } else if(node instanceof InputNode) { //these share the interpreter's input and DATA
+            return () -> evaluateInput((InputNode) node);
+        } else if(node instanceof ReadNode) {
+            return () -> evaluateRead((ReadNode) node);
+        } else if(node instanceof RestoreNode) {
+            return data::restore;
+        } else if(node instanceof DataNode) { //its values are in the pool already
+            return () -> {};
+        } else if(node instanceof IfNode) {
+            var label = ((IfNode) node).getTarget();
+            if(!callable(label, calling))
+                return null;
+            var condition = closures.condition(((IfNode) node).getCondition());
+            return () -> {
+                if(condition.getAsBoolean())
+                    evaluateLabel(label);
+            };
+        } else if(node instanceof GosubNode) {
+            var label = ((GosubNode) node).getTarget();
+            if(!callable(label, calling))
+                return null;
+            return () -> evaluateLabel(label);
+        }
+        return null;
+    }
+
+    //Whether the label's statement could be compiled as well, so calling it from compiled code can't jump anywhere
+    private boolean callable(LabeledStatementNode label, HashSet<LabeledStatementNode> calling) {
+        if(!calling.add(label))
+            return false;
+        boolean callable = compileStatement(label.getStatement(), calling) != null;
+        calling.remove(label);
+        return callable;
     }
 
     private boolean evaluateBoolean(BooleanNode node) {
+        var left = tree(node.getLeft());
+        var right = tree(node.getRight());
         switch (node.getOperator()) {
-            case LESSTHAN -> {return evaluateInt(node.getLeft()) < evaluateInt(node.getRight());}
-            case LESSTHANEQUALS -> {return evaluateInt(node.getLeft()) <= evaluateInt(node.getRight());}
-            case GREATERTHAN -> {return evaluateInt(node.getLeft()) > evaluateInt(node.getRight());}
-            case GREATERTHANEQUALS -> {return evaluateInt(node.getLeft()) >= evaluateInt(node.getRight());}
-            case NOTEQUALS -> {return evaluateInt(node.getLeft()) != evaluateInt(node.getRight());}
+            case LESSTHAN -> {return left.executeInt() < right.executeInt();}
+            case LESSTHANEQUALS -> {return left.executeInt() <= right.executeInt();}
+            case GREATERTHAN -> {return left.executeInt() > right.executeInt();}
+            case GREATERTHANEQUALS -> {return left.executeInt() >= right.executeInt();}
+            case NOTEQUALS -> {return left.executeInt() != right.executeInt();}
             default -> throw new RuntimeException("Invalid comparison operator");
         }
     }
@@ -328,8 +624,16 @@ public class Interpreter {
     private void interpret(StatementNode node) {
         if(node instanceof ReadNode) {
             evaluateRead((ReadNode) node);
+        } else if(node instanceof RestoreNode) {
+            data.restore();
+        } else if(node instanceof DataNode) {
+            //nothing to do, its values are in the pool already
         } else if(node instanceof AssignmentNode) {
             evaluateAssignment((AssignmentNode) node);
+        } else if(node instanceof ArrayAssignmentNode) {
+            evaluateArrayAssignment((ArrayAssignmentNode) node);
+        } else if(node instanceof DimNode) {
+            evaluateDim((DimNode) node);
         } else if(node instanceof InputNode) {
             evaluateInput((InputNode) node);
         } else if(node instanceof PrintNode) {
@@ -341,10 +645,15 @@ public class Interpreter {
         } else if(node instanceof GosubNode) {
             evaluateGosub((GosubNode) node);
         } else if(node instanceof NextNode) {
-            currentStatement = statementStack.pop(); //sets currentStatement to the beginning of the for loop
-            interpret(currentStatement); //immediately reinterpret or else it will pass the loop
+            evaluateNext();
+        } else if(node instanceof WhileNode) {
+            evaluateWhile((WhileNode) node);
+        } else if(node instanceof LabeledStatementNode && ((LabeledStatementNode) node).getLoop() != null) {
+            evaluateLoopEnd((LabeledStatementNode) node);
         } else if(node instanceof ReturnNode) {
-            currentStatement = statementStack.pop(); //sets currentStatement back to gosub call
+            if(returnDepth == 0)
+                throw new RuntimeException("RETURN without GOSUB");
+            currentStatement = returnStack[--returnDepth]; //sets currentStatement back to gosub call
         } else if(node instanceof EndNode) {
             end = true;
         } else {
@@ -353,11 +662,20 @@ public class Interpreter {
     }
 
     //runs the code
+    @Override
     public void run() {
         currentStatement = (StatementNode) statementList.getList().getFirst();
-        while(!end && currentStatement != null) { //if either is false, end the program
-            interpret(currentStatement);
-            currentStatement = currentStatement.next();
+        try {
+            while(!end && currentStatement != null) { //if either is false, end the program
+                interpret(currentStatement);
+                if(called != null) {
+                    runCalls();
+                    returnDepth = 0; //every label called from here is done
+                }
+                currentStatement = currentStatement.next();
+            }
+        } finally {
+            output.flush(); //what was printed before an error still shows up
         }
     }
 
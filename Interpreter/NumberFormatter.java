@@ -0,0 +1,44 @@
+package Interpreter;
+
+//Writes the text of numbers as ASCII straight into a byte array. Ints are written digit by digit, the same text
+//Integer.toString gives but without making a String for it. Floats go through Float.toString, whose shortest digits
+//aren't worth working out again here, and only their characters are copied.
+final class NumberFormatter {
+
+    //The longest text either write can make, "-1.2345678E-38" for floats
+    static final int MAX_LENGTH = 16;
+
+    private NumberFormatter() {}
+
+    //Writes value at to[at] and returns where its text ends
+    static int write(int value, byte[] to, int at) {
+        int end = at + length(value);
+        int position = end;
+        int negative = value < 0 ? value : -value; //negative so MIN_VALUE has room
+        do {
+            to[--position] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        } while(negative != 0);
+        if(value < 0)
+            to[--position] = '-';
+        return end;
+    }
+
+    static int length(int value) {
+        int length = value < 0 ? 2 : 1;
+        for(int negative = value < 0 ? value : -value; negative <= -10; negative /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    //Writes value at to[at] and returns where its text ends
+    static int write(float value, byte[] to, int at) {
+        String text = Float.toString(value);
+        int length = text.length();
+        for(int i = 0; i < length; i++) {
+            to[at++] = (byte) text.charAt(i);
+        }
+        return at;
+    }
+}
@@ -0,0 +1,21 @@
+package Interpreter;
+
+//Where a program's PRINT lines and INPUT prompts go. Engines write everything through one of these and flush it when
+//the program stops, so output can be batched instead of going out a line at a time
+public interface OutputSink {
+
+    //An INPUT prompt, printed without a line break
+    void print(String text);
+
+    //A PRINT item, each on a line of its own
+    void println(String line);
+
+    void println(int value);
+
+    void println(float value);
+
+    //Called right before INPUT reads, for sinks that have to show their prompts first
+    void beforeInput();
+
+    void flush();
+}
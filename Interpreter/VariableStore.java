@@ -0,0 +1,151 @@
+package Interpreter;
+
+import Parser.Node.Type;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+//Holds the value of every variable by the slot the SlotResolver gave it. Each slot has room for an int, a float and a
+//String, but a variable only ever uses the one its name says, so reading a variable as the wrong type looks the same
+//as reading one that was never assigned. An array's slot holds its elements in one flat array of its type instead,
+//row after row, so an element is found by working its indices into an offset with index().
+public class VariableStore {
+
+    private final String[] names;
+
+    private final int[] ints;
+    private final float[] floats;
+    private final String[] strings; //null until assigned
+
+    //Which int and float slots have been assigned, a 0 could otherwise be mistaken for a value
+    private final BitSet intAssigned;
+    private final BitSet floatAssigned;
+
+    //The elements of each array by its slot, null until its DIM runs
+    private final int[][] intArrays;
+    private final float[][] floatArrays;
+    private final String[][] stringArrays;
+
+    //The number of elements in each dimension of each array
+    private final int[][] dimensions;
+
+    public VariableStore(String[] names) {
+        this.names = names;
+        ints = new int[names.length];
+        floats = new float[names.length];
+        strings = new String[names.length];
+        intAssigned = new BitSet(names.length);
+        floatAssigned = new BitSet(names.length);
+        intArrays = new int[names.length][];
+        floatArrays = new float[names.length][];
+        stringArrays = new String[names.length][];
+        dimensions = new int[names.length][];
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public boolean hasInt(int slot) {
+        return intAssigned.get(slot);
+    }
+
+    public boolean hasFloat(int slot) {
+        return floatAssigned.get(slot);
+    }
+
+    public boolean hasString(int slot) {
+        return strings[slot] != null;
+    }
+
+    //while all variables are global, they have to be assigned
+    public int getInt(int slot) {
+        if(!intAssigned.get(slot))
+            throw new RuntimeException("Use of unassigned variable");
+        return ints[slot];
+    }
+
+    public float getFloat(int slot) {
+        if(!floatAssigned.get(slot))
+            throw new RuntimeException("Use of unassigned variable");
+        return floats[slot];
+    }
+
+    public String getString(int slot) {
+        if(strings[slot] == null)
+            throw new RuntimeException("Use of unassigned variable");
+        return strings[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        ints[slot] = value;
+        intAssigned.set(slot);
+    }
+
+    public void setFloat(int slot, float value) {
+        floats[slot] = value;
+        floatAssigned.set(slot);
+    }
+
+    public void setString(int slot, String value) {
+        strings[slot] = value;
+    }
+
+    //Makes the array anew with the given size for each dimension, every element 0, 0.0 or ""
+    public void dim(int slot, int[] sizes) {
+        int length = 1;
+        for(int size : sizes) {
+            if(size < 0)
+                throw new RuntimeException("Invalid array size");
+            try {
+                length = Math.multiplyExact(length, size);
+            } catch(ArithmeticException e) {
+                throw new RuntimeException("Invalid array size");
+            }
+        }
+        switch(Type.ofVariable(names[slot])) {
+            case INT -> intArrays[slot] = new int[length];
+            case FLOAT -> floatArrays[slot] = new float[length];
+            default -> {
+                stringArrays[slot] = new String[length];
+                Arrays.fill(stringArrays[slot], "");
+            }
+        }
+        dimensions[slot] = sizes;
+    }
+
+    //Checks the index against its dimension and adds it to the offset of the indices before it. An element's offset
+    //is index() of the first index with an offset of 0, then of every other index with the offset so far
+    public int index(int slot, int dimension, int offset, int index) {
+        int[] sizes = dimensions[slot];
+        if(sizes == null)
+            throw new RuntimeException("Use of undimensioned array");
+        if(index < 0 || index >= sizes[dimension])
+            throw new RuntimeException("Array index out of bounds");
+        return offset * sizes[dimension] + index;
+    }
+
+    public int getInt(int slot, int offset) {
+        return intArrays[slot][offset];
+    }
+
+    public float getFloat(int slot, int offset) {
+        return floatArrays[slot][offset];
+    }
+
+    public String getString(int slot, int offset) {
+        return stringArrays[slot][offset];
+    }
+
+    public void setInt(int slot, int offset, int value) {
+        intArrays[slot][offset] = value;
+    }
+
+    public void setFloat(int slot, int offset, float value) {
+        floatArrays[slot][offset] = value;
+    }
+
+    public void setString(int slot, int offset, String value) {
+        stringArrays[slot][offset] = value;
+    }
+}
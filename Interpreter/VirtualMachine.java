@@ -0,0 +1,278 @@
+package Interpreter;
+
+import Compiler.BytecodeCompiler;
+import Compiler.OpCode;
+import Compiler.Program;
+import Parser.Node.StatementListNode;
+
+import java.util.Arrays;
+
+//Stack based engine that runs the output of the BytecodeCompiler. It behaves the same as the Interpreter, which is
+//kept around as the reference for what a program should do.
+public class VirtualMachine implements Engine {
+
+    private final Program program;
+
+    private final VariableStore variables;
+
+    //One operand stack per type so that nothing has to be boxed
+    private final int[] intStack;
+    private final float[] floatStack;
+    private final String[] stringStack;
+
+    //Where to go back to when a label's statement is done, GOSUBs can't nest deeper than maxDepth
+    private int[] returnStack = new int[16];
+    private final int maxDepth;
+
+    //The DATA values with a cursor for the next one READ takes
+    private final DataSource data;
+
+    //Where PRINT and the INPUT prompts write to, flushed when the program stops
+    private final OutputSink output;
+
+    //Where INPUT reads from, the same one for every INPUT statement
+    private final InputSource input;
+
+    public VirtualMachine(StatementListNode statementList) {
+        this(new BytecodeCompiler().compile(statementList));
+    }
+
+    public VirtualMachine(Program program) {
+        this(program, new BufferedOutput());
+    }
+
+    public VirtualMachine(Program program, OutputSink output) {
+        this(program, output, new BufferedInput());
+    }
+
+    public VirtualMachine(Program program, OutputSink output, InputSource input) {
+        this(program, output, input, null);
+    }
+
+    //READ goes on to the values of moreData once the program's own run out, if it isn't null
+    public VirtualMachine(Program program, OutputSink output, InputSource input, DataSource moreData) {
+        this(program, Interpreter.MAX_DEPTH, output, input, moreData);
+    }
+
+    public VirtualMachine(Program program, int maxDepth, OutputSink output, InputSource input, DataSource moreData) {
+        this.program = program;
+        this.maxDepth = maxDepth;
+        this.output = output;
+        this.input = input;
+        data = new DataPool(program.getData(), moreData);
+        variables = new VariableStore(program.getVariables());
+        intStack = new int[program.getIntStackSize()];
+        floatStack = new float[program.getFloatStackSize()];
+        stringStack = new String[program.getStringStackSize()];
+    }
+
+    @Override
+    public void run() {
+        try {
+            execute();
+        } finally {
+            output.flush(); //what was printed before an error still shows up
+        }
+    }
+
+    private void execute() {
+        final int[] code = program.getCode();
+        final String[] constants = program.getStrings();
+        int pc = 0;
+        int isp = 0, fsp = 0, ssp = 0, rsp = 0; //top of each stack
+
+        while(true) {
+            switch(code[pc]) {
+                case OpCode.HALT -> { return; }
+                case OpCode.FAIL -> throw new RuntimeException(constants[code[pc + 1]]);
+
+                case OpCode.PUSH_INT -> { intStack[isp++] = code[pc + 1]; pc += 2; }
+                case OpCode.PUSH_FLOAT -> { floatStack[fsp++] = Float.intBitsToFloat(code[pc + 1]); pc += 2; }
+                case OpCode.PUSH_STRING -> { stringStack[ssp++] = constants[code[pc + 1]]; pc += 2; }
+
+                case OpCode.LOAD_INT -> { intStack[isp++] = variables.getInt(code[pc + 1]); pc += 2; }
+                case OpCode.LOAD_FLOAT -> { floatStack[fsp++] = variables.getFloat(code[pc + 1]); pc += 2; }
+                case OpCode.LOAD_STRING -> { stringStack[ssp++] = variables.getString(code[pc + 1]); pc += 2; }
+                case OpCode.STORE_INT -> { variables.setInt(code[pc + 1], intStack[--isp]); pc += 2; }
+                case OpCode.STORE_FLOAT -> { variables.setFloat(code[pc + 1], floatStack[--fsp]); pc += 2; }
+                case OpCode.STORE_STRING -> { variables.setString(code[pc + 1], stringStack[--ssp]); pc += 2; }
+
+                case OpCode.DIM -> {
+                    isp -= code[pc + 2];
+                    variables.dim(code[pc + 1], Arrays.copyOfRange(intStack, isp, isp + code[pc + 2]));
+                    pc += 3;
+                }
+                case OpCode.INDEX -> {
+                    if(code[pc + 2] == 0) {
+                        intStack[isp - 1] = variables.index(code[pc + 1], 0, 0, intStack[isp - 1]);
+                    } else {
+                        isp--;
+                        int index = intStack[isp];
+                        intStack[isp - 1] = variables.index(code[pc + 1], code[pc + 2], intStack[isp - 1], index);
+                    }
+                    pc += 3;
+                }
+                case OpCode.LOAD_INT_ELEMENT -> {
+                    intStack[isp - 1] = variables.getInt(code[pc + 1], intStack[isp - 1]);
+                    pc += 2;
+                }
+                case OpCode.LOAD_FLOAT_ELEMENT -> {
+                    floatStack[fsp++] = variables.getFloat(code[pc + 1], intStack[--isp]);
+                    pc += 2;
+                }
+                case OpCode.LOAD_STRING_ELEMENT -> {
+                    stringStack[ssp++] = variables.getString(code[pc + 1], intStack[--isp]);
+                    pc += 2;
+                }
+                case OpCode.STORE_INT_ELEMENT -> {
+                    isp -= 2;
+                    variables.setInt(code[pc + 1], intStack[isp + 1], intStack[isp]);
+                    pc += 2;
+                }
+                case OpCode.STORE_FLOAT_ELEMENT -> {
+                    variables.setFloat(code[pc + 1], intStack[--isp], floatStack[--fsp]);
+                    pc += 2;
+                }
+                case OpCode.STORE_STRING_ELEMENT -> {
+                    variables.setString(code[pc + 1], intStack[--isp], stringStack[--ssp]);
+                    pc += 2;
+                }
+
+                case OpCode.ADD_INT -> { isp--; intStack[isp - 1] += intStack[isp]; pc++; }
+                case OpCode.SUB_INT -> { isp--; intStack[isp - 1] -= intStack[isp]; pc++; }
+                case OpCode.MUL_INT -> { isp--; intStack[isp - 1] *= intStack[isp]; pc++; }
+                case OpCode.DIV_INT -> { isp--; intStack[isp - 1] /= intStack[isp]; pc++; }
+                case OpCode.ADD_FLOAT -> { fsp--; floatStack[fsp - 1] += floatStack[fsp]; pc++; }
+                case OpCode.SUB_FLOAT -> { fsp--; floatStack[fsp - 1] -= floatStack[fsp]; pc++; }
+                case OpCode.MUL_FLOAT -> { fsp--; floatStack[fsp - 1] *= floatStack[fsp]; pc++; }
+                case OpCode.DIV_FLOAT -> { fsp--; floatStack[fsp - 1] /= floatStack[fsp]; pc++; }
+
+                case OpCode.LT_INT -> { isp--; intStack[isp - 1] = intStack[isp - 1] < intStack[isp] ? 1 : 0; pc++; }
+                case OpCode.LE_INT -> { isp--; intStack[isp - 1] = intStack[isp - 1] <= intStack[isp] ? 1 : 0; pc++; }
+                case OpCode.GT_INT -> { isp--; intStack[isp - 1] = intStack[isp - 1] > intStack[isp] ? 1 : 0; pc++; }
+                case OpCode.GE_INT -> { isp--; intStack[isp - 1] = intStack[isp - 1] >= intStack[isp] ? 1 : 0; pc++; }
+                case OpCode.NE_INT -> { isp--; intStack[isp - 1] = intStack[isp - 1] != intStack[isp] ? 1 : 0; pc++; }
+
+                case OpCode.JUMP -> pc = code[pc + 1];
+                case OpCode.JUMP_FALSE -> pc = intStack[--isp] == 0 ? code[pc + 1] : pc + 2;
+                case OpCode.CALL -> {
+                    if(rsp == maxDepth)
+                        throw new RuntimeException("GOSUB nested deeper than " + maxDepth);
+                    if(rsp == returnStack.length)
+                        returnStack = Arrays.copyOf(returnStack, rsp * 2);
+                    returnStack[rsp++] = pc + 2;
+                    pc = code[pc + 1];
+                }
+                case OpCode.RET -> {
+                    if(rsp == 0)
+                        throw new RuntimeException("RETURN without GOSUB");
+                    pc = returnStack[--rsp];
+                }
+
+                case OpCode.FOR_STEP -> {
+                    int slot = code[pc + 1];
+                    if(variables.hasInt(slot)) { //only the first pass through the loop runs the initial assignment
+                        variables.setInt(slot, variables.getInt(slot) + code[pc + 2]);
+                        pc = code[pc + 3];
+                    } else {
+                        pc += 4;
+                    }
+                }
+                case OpCode.FOR_TEST -> pc = variables.getInt(code[pc + 1]) >= code[pc + 2] ? code[pc + 3] : pc + 4;
+                case OpCode.FOR_TEST_DOWN -> pc = variables.getInt(code[pc + 1]) <= code[pc + 2] ? code[pc + 3] : pc + 4;
+                case OpCode.FOR_STEP_SLOT -> {
+                    int slot = code[pc + 1];
+                    if(variables.hasInt(slot)) {
+                        variables.setInt(slot, variables.getInt(slot) + variables.getInt(code[pc + 2] + 1));
+                        pc = code[pc + 3];
+                    } else {
+                        pc += 4;
+                    }
+                }
+                case OpCode.FOR_TEST_SLOT -> {
+                    int bounds = code[pc + 2];
+                    boolean looping = Interpreter.looping(variables.getInt(code[pc + 1]), variables.getInt(bounds),
+                            variables.getInt(bounds + 1));
+                    pc = looping ? pc + 4 : code[pc + 3];
+                }
+
+                case OpCode.RANDOM -> { intStack[isp++] = Interpreter.random(); pc++; }
+                case OpCode.VAL -> { intStack[isp++] = Interpreter.intVal(stringStack[--ssp]); pc++; }
+                case OpCode.VAL_FLOAT -> { floatStack[fsp++] = Interpreter.floatVal(stringStack[--ssp]); pc++; }
+                case OpCode.LEFT -> {
+                    isp--;
+                    stringStack[ssp - 1] = Interpreter.left(stringStack[ssp - 1], intStack[isp]);
+                    pc++;
+                }
+                case OpCode.RIGHT -> {
+                    isp--;
+                    stringStack[ssp - 1] = Interpreter.right(stringStack[ssp - 1], intStack[isp]);
+                    pc++;
+                }
+                case OpCode.MID -> {
+                    isp -= 2;
+                    stringStack[ssp - 1] = Interpreter.mid(stringStack[ssp - 1], intStack[isp], intStack[isp + 1]);
+                    pc++;
+                }
+                case OpCode.NUM_INT -> { stringStack[ssp++] = Interpreter.num(intStack[--isp]); pc++; }
+                case OpCode.NUM_FLOAT -> { stringStack[ssp++] = Interpreter.num(floatStack[--fsp]); pc++; }
+
+                case OpCode.PRINT_CONST -> { output.println(constants[code[pc + 1]]); pc += 2; }
+                case OpCode.PRINT_INT -> {
+                    if(!variables.hasInt(code[pc + 1]))
+                        throw new RuntimeException(variables.getName(code[pc + 1]) + " not declared");
+                    output.println(variables.getInt(code[pc + 1]));
+                    pc += 2;
+                }
+                case OpCode.PRINT_FLOAT -> {
+                    if(!variables.hasFloat(code[pc + 1]))
+                        throw new RuntimeException(variables.getName(code[pc + 1]) + " not declared");
+                    output.println(variables.getFloat(code[pc + 1]));
+                    pc += 2;
+                }
+                case OpCode.PRINT_STRING -> {
+                    if(!variables.hasString(code[pc + 1]))
+                        throw new RuntimeException(variables.getName(code[pc + 1]) + " not declared");
+                    output.println(variables.getString(code[pc + 1]));
+                    pc += 2;
+                }
+                case OpCode.PRINT_INT_ELEMENT -> {
+                    output.println(variables.getInt(code[pc + 1], intStack[--isp]));
+                    pc += 2;
+                }
+                case OpCode.PRINT_FLOAT_ELEMENT -> {
+                    output.println(variables.getFloat(code[pc + 1], intStack[--isp]));
+                    pc += 2;
+                }
+                case OpCode.PRINT_STRING_ELEMENT -> {
+                    output.println(variables.getString(code[pc + 1], intStack[--isp]));
+                    pc += 2;
+                }
+
+                case OpCode.INPUT_PROMPT -> { output.print(constants[code[pc + 1]]); pc += 2; }
+                case OpCode.INPUT_INT -> {
+                    output.beforeInput();
+                    variables.setInt(code[pc + 1], input.readInt());
+                    pc += 2;
+                }
+                case OpCode.INPUT_FLOAT -> {
+                    output.beforeInput();
+                    variables.setFloat(code[pc + 1], input.readFloat());
+                    pc += 2;
+                }
+                case OpCode.INPUT_STRING -> {
+                    output.beforeInput();
+                    variables.setString(code[pc + 1], input.readString());
+                    pc += 2;
+                }
+
+                case OpCode.RESTORE -> { data.restore(); pc++; }
+                case OpCode.READ_INT -> { variables.setInt(code[pc + 1], data.readInt()); pc += 2; }
+                case OpCode.READ_FLOAT -> { variables.setFloat(code[pc + 1], data.readFloat()); pc += 2; }
+                case OpCode.READ_STRING -> { variables.setString(code[pc + 1], data.readString()); pc += 2; }
+
+                default -> throw new RuntimeException("Invalid opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+}
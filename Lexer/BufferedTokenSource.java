@@ -0,0 +1,100 @@
+package Lexer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//Runs another TokenSource on its own thread, so lexing goes on while the Parser works through what is already done.
+//Tokens are passed over in batches through a bounded queue, the lexer waits whenever the Parser falls that far behind.
+public class BufferedTokenSource implements TokenSource, AutoCloseable {
+
+    private static final int BATCH = 256;
+
+    // The last batch, shorter than the rest and possibly empty, is followed by this one
+    private static final TokenStream END = new TokenStream("");
+
+    private final CharSequence text;
+    private final BlockingQueue<TokenStream> queue;
+
+    // Batches the Parser has taken the tokens out of, for the lexer to fill again instead of making new ones
+    private final BlockingQueue<TokenStream> empty;
+
+    private final Thread producer;
+
+    // Whatever the lexer threw, handed to the Parser once it has used up the tokens from before it
+    private volatile RuntimeException failure;
+
+    private boolean done = false;
+
+    public BufferedTokenSource(TokenSource source) {
+        this(source, 64);
+    }
+
+    // At most this many batches of tokens are lexed ahead of the Parser
+    public BufferedTokenSource(TokenSource source, int capacity) {
+        text = source.text();
+        queue = new ArrayBlockingQueue<>(capacity);
+        empty = new ArrayBlockingQueue<>(capacity + 2);
+        producer = new Thread(() -> produce(source), "lexer");
+        producer.setDaemon(true); // a Parser that gives up early shouldn't keep the program running
+        producer.start();
+    }
+
+    private void produce(TokenSource source) {
+        try {
+            var tokens = batch();
+            try {
+                while(source.next(tokens)) {
+                    if(tokens.size() >= BATCH) {
+                        queue.put(tokens);
+                        tokens = batch();
+                    }
+                }
+            } catch(RuntimeException e) {
+                failure = e;
+            }
+            queue.put(tokens);
+            queue.put(END);
+        } catch(InterruptedException e) { // closed, nobody is waiting for the tokens anymore
+        }
+    }
+
+    private TokenStream batch() {
+        var batch = empty.poll();
+        return batch != null ? batch : new TokenStream(text, BATCH);
+    }
+
+    @Override
+    public CharSequence text() {
+        return text;
+    }
+
+    @Override
+    public boolean next(TokenStream tokens) {
+        while(!done) {
+            TokenStream batch;
+            try {
+                batch = queue.take();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for tokens");
+            }
+            if(batch == END) {
+                done = true;
+                if(failure != null)
+                    throw failure;
+            } else if(!batch.isEmpty()) {
+                tokens.append(batch);
+                batch.clear();
+                empty.offer(batch);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stops the lexer thread if the tokens aren't needed anymore
+    @Override
+    public void close() {
+        producer.interrupt();
+    }
+}
@@ -4,40 +4,58 @@ import java.io.*;
 import java.nio.file.*;
 
 public class CodeHandler {
-    // Holds a string representation of the contents of a file
-    private String file;
+    // Files bigger than this are memory-mapped by open() instead of being read into a String
+    public static final long MAP_THRESHOLD = 16 * 1024 * 1024;
+
+    // Holds the contents of a file, either as a String or as a view of the memory-mapped file
+    private CharSequence file;
 
     // The number of characters into the file we are
     private int fingerPosition;
 
     // Error is thrown when an invalid path is given or any other IOException occurs
     public CodeHandler(String fileName) throws IOException {
+        this(fileName, false);
+    }
+
+    // A memory-mapped file is decoded bit by bit as the lexer reaches it rather than being copied onto the heap
+    public CodeHandler(String fileName, boolean memoryMapped) throws IOException {
         try{
-            Path filePath = Path.of(fileName);
-            file = new String(Files.readAllBytes(filePath));
+            if(memoryMapped) {
+                file = new MappedSource(fileName);
+            } else {
+                Path filePath = Path.of(fileName);
+                file = new String(Files.readAllBytes(filePath));
+            }
             fingerPosition = 0;
         } catch(Exception e) {
             throw new IOException("Error Reading File");
         }
     }
 
+    // Memory-maps the file if it is big enough for that to pay off
+    public static CodeHandler open(String fileName) throws IOException {
+        try {
+            return new CodeHandler(fileName, Files.size(Path.of(fileName)) > MAP_THRESHOLD);
+        } catch(IOException e) {
+            throw new IOException("Error Reading File");
+        }
+    }
+
     // Peeks at the i-th character ahead of the fingerPosition, if we reach the end of the file the null character is
     // returned.
     public char peek(int i){
-        try {
-            return file.charAt(fingerPosition + i);
-        } catch(IndexOutOfBoundsException e) {
-            return '\0';
-        }
+        int index = fingerPosition + i;
+        return index >= 0 && index < file.length() ? file.charAt(index) : '\0';
     }
 
     // The second argument is i + 1 since the substring method has exclusive bounds.
     public String peekString(int i){
-        return file.substring(fingerPosition + 1, fingerPosition + i + 1);
+        return file.subSequence(fingerPosition + 1, fingerPosition + i + 1).toString();
     }
 
-    // Pre incrementation ensures every value in the token is correct, except for the first token. This issue is handled
-    // in the ProcessWord/Number methods in the lexer, be warned in changing it to a post increment...
+    // Pre incrementation means the finger always sits on the character before the one the lexer looks at next, which
+    // is why the lexer starts it before the first character. Be warned in changing it to a post increment...
     public char getChar(){
         return file.charAt(++fingerPosition);
     }
@@ -51,6 +69,15 @@ public class CodeHandler {
     }
 
     public String remainder() {
-        return file.substring(fingerPosition);
+        return file.subSequence(fingerPosition, file.length()).toString();
+    }
+
+    public int getPosition() {
+        return fingerPosition;
+    }
+
+    // The whole file, tokens refer back into it instead of copying their text out
+    public CharSequence getSource() {
+        return file;
     }
 }
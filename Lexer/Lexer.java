@@ -1,228 +1,407 @@
 package Lexer;
 
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.lang.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 public class Lexer {
 
+    // What kind of character each ASCII character is, so deciding what to do with a character is one array lookup
+    private static final byte OTHER = 0, LETTER = 1, DIGIT = 2, DOT = 3, UNDERSCORE = 4, SUFFIX = 5, COLON = 6,
+            QUOTE = 7, BLANK = 8, RETURN = 9, NEWLINE = 10, SYMBOL = 11, END = 12;
+    private static final byte[] classes = fillClasses();
+
+    // The number DFA, a row per state and a column per character class. Numbers are digits with at most one decimal
+    private static final int WHOLE = 0, FRACTION = 1, DONE = 2;
+    private static final int[][] numberStates = fillNumberStates();
+
+    // Symbols like '>' '<' '+', indexed by the character
+    private static final Token.TokenType[] oneCharSymbols = fillOneCharSymbols();
+    // Symbols like '>=' '<=' '<>', indexed by the first character and then the second
+    private static final Token.TokenType[][] twoCharSymbols = fillTwoCharSymbols();
+
+    // Every known key word and function in this version of BASIC, stored as a trie. Upper and lower case letters share
+    // a column, so a word is matched straight out of the source, ignoring case, without building a String for it
+    private static final int[] columns = new int[128];
+    private static int columnCount;
+    private static int[] trie;
+    private static int trieSize;
+    private static Token.TokenType[] knownWords;
+    private static boolean[] knownFunctions;
+    static {
+        fillKnownWords();
+    }
+
     // Current line in the file we are in, starts at 0.
     private int lineNum;
     // Current char position in a given line, NOT the entire file
     private int charPosition;
-    private char next;
-    private final LinkedList<Token> tokenList;
-    // Every known key word or symbol in this version of BASIC
-    private final HashMap<String, Token.TokenType> knownWords;
-    // Symbols like '>' '<' '+'
-    private final HashMap<Character, Token.TokenType> oneCharSymbols;
-    // Symbols like '>=' '<=' '<>'
-    private final HashMap<String, Token.TokenType> twoCharSymbols;
-
-    private final HashMap<String, Token.TokenType> knownFunctions;
+    private TokenStream tokenList;
+    // The file being lexed, the index of the next character in it to look at and where to stop
+    private CharSequence source;
+    private int position;
+    private int limit;
+    // Where "Unrecognized char" messages are collected instead of printed, see ParallelLexer
+    private final StringBuilder warnings;
 
     public Lexer() {
-        lineNum = 0;
+        this(0, null);
+    }
+
+    // Collects "Unrecognized char" messages, one per line, instead of printing them
+    public Lexer(StringBuilder warnings) {
+        this(0, warnings);
+    }
+
+    // For lexing a piece of a file that starts at the beginning of the given line
+    Lexer(int lineNum, StringBuilder warnings) {
+        this.lineNum = lineNum;
+        this.warnings = warnings;
         charPosition = 0;
-        tokenList = new LinkedList<>();
-        knownWords = fillKnownWords();
-        oneCharSymbols = fillOneCharSymbols();
-        twoCharSymbols = fillTwoCharSymbols();
-        knownFunctions = fillKnownFunctions();
-    }
-
-    public LinkedList<Token> lex(String fileName) throws Exception {
-        var file = new CodeHandler(fileName);
-        next = file.peek(0); // 0 will always be the first character within a file
-        while(!file.isDone()) {
-            switch(next) {
-                case ' ', '\t' -> {
-                    charPosition++;
-                    file.swallow(1);
-                }
-                case '\r' -> file.swallow(1);
-                case '\n' -> { // lineNum needs to be incremented, and charPosition needs to be reset to 0
-                    tokenList.add(new Token(Token.TokenType.ENDOFLINE, lineNum, charPosition));
-                    lineNum++;
-                    charPosition = 0;
-                    file.swallow(1);
-                }
+    }
+
+    // Big files are split up and lexed in parallel when there is more than one core, which gives exactly the same tokens
+    public TokenStream lex(String fileName) throws Exception {
+        var file = CodeHandler.open(fileName);
+        if(file.getSource().length() > ParallelLexer.THRESHOLD && ForkJoinPool.commonPool().getParallelism() > 1)
+            return new ParallelLexer(ForkJoinPool.commonPool()).lex(file);
+        return lex(file);
+    }
+
+    // The file is scanned straight out of its source. The CodeHandler's finger is left on the last character lexed
+    public TokenStream lex(CodeHandler file) {
+        var tokens = lex(file.getSource(), file.getPosition(), file.getSource().length());
+        file.swallow(position - 1 - file.getPosition());
+        return tokens;
+    }
+
+    // Lexes the source from start until end, or until a null character comes first
+    TokenStream lex(CharSequence source, int start, int end) {
+        this.source = source;
+        position = start;
+        limit = end;
+        tokenList = new TokenStream(source);
+        while(step());
+        return tokenList;
+    }
 
-                case '_', '$', '%' -> tokenList.add(processWord(file)); // Words in BASIC can have these given characters in them
-                case '\0' -> {return tokenList;} // Case for when end of file is reached
-                case '"' -> tokenList.add(handleStringLiteral(file)); // Case for StringLiteral
-                default -> {
-                    if (Character.isLetter(next)) {
-                        tokenList.add(processWord(file));
-                    } else if (Character.isDigit(next) || next == '.') { // Numbers can have a decimal in them
-                        tokenList.add(processNumber(file));
-                    } else if (oneCharSymbols.containsKey(next)) { // Next is the beginning of a symbol
-                        tokenList.add(handleSymbol(file));
-                    } else { // Error isn't thrown to ensure that lexer finishes
-                        System.out.println("Unrecognized char at line " + lineNum
-                                + ", position " + (charPosition) + ": " + next);
-                        file.swallow(1);
-                        charPosition++;
-                    }
+    // Hands out tokens one at a time as the Parser asks for them, so the whole file never has to be lexed up front.
+    // Each token is lexed straight into the TokenStream next() is handed, no Token is made for it
+    public TokenSource stream(CodeHandler file) {
+        source = file.getSource();
+        position = file.getPosition();
+        limit = source.length();
+        return new TokenSource() {
+            @Override
+            public CharSequence text() {
+                return source;
+            }
+
+            @Override
+            public boolean next(TokenStream tokens) {
+                tokenList = tokens;
+                int size = tokens.size();
+                boolean more = true;
+                while(tokens.size() == size && more) {
+                    more = step();
                 }
+                if(!more)
+                    file.swallow(position - 1 - file.getPosition());
+                return tokens.size() > size;
+            }
+        };
+    }
+
+    // Lexes whatever comes next, which adds at most one token. Returns false once the end of the file is reached
+    private boolean step() {
+        char next = peek();
+        switch(classOf(next)) {
+            case BLANK -> {
+                charPosition++;
+                position++;
+            }
+            case RETURN -> position++;
+            case NEWLINE -> { // lineNum needs to be incremented, and charPosition needs to be reset to 0
+                tokenList.add(Token.TokenType.ENDOFLINE, lineNum, charPosition, position, -1);
+                lineNum++;
+                charPosition = 0;
+                position++;
+            }
+
+            case LETTER, UNDERSCORE, SUFFIX -> processWord(); // Words in BASIC can have these given characters in them
+            case DIGIT, DOT -> processNumber(); // Numbers can have a decimal in them
+            case QUOTE -> handleStringLiteral(); // Case for StringLiteral
+            case SYMBOL -> handleSymbol();
+            case END -> {return false;} // Case for when end of file is reached
+            default -> { // Error isn't thrown to ensure that lexer finishes
+                String warning = "Unrecognized char at line " + lineNum + ", position " + (charPosition) + ": " + next;
+                if(warnings == null)
+                    System.out.println(warning);
+                else
+                    warnings.append(warning).append(System.lineSeparator());
+                position++;
+                charPosition++;
             }
-            // Next is being incremented last or else we will miss the first character in the file. Since getChar
-            // moves forward the fingerPosition we don't need to peek anything but 1 ahead.
-            next = file.peek(1);
         }
-        return tokenList;
+        return true;
+    }
+
+    // The next character, or the null character once the end of the file is reached
+    private char peek() {
+        return position < limit ? source.charAt(position) : '\0';
+    }
+
+    // The index of the character lexing stopped at
+    int getPosition() {
+        return position;
     }
 
-    private Token processWord(CodeHandler file) {
-        StringBuilder value = new StringBuilder();
+    private static byte classOf(char c) {
+        if(c < 128)
+            return classes[c];
+        // Outside of ASCII only letters and digits mean anything, and they are rare enough to ask Character about
+        return Character.isLetter(c) ? LETTER : Character.isDigit(c) ? DIGIT : OTHER;
+    }
 
-        // This is a base case for the first token, the pre increment in the Lexer.Lexer.CodeHandler causes the first character of the
-        // file to get glossed over, but changing it to post increment breaks more of the code.
-        if(tokenList.isEmpty())
-            value.append(next);
+    // Words are never copied, the token just records where in the file the word starts and how long it is
+    private void processWord() {
+        int start = position;
 
         boolean completeWord = false;
         while(!completeWord) {
-            next = file.peek(1);
-            if(next == '%' || next == '$') { // Words have to end when one of these is encountered.
-                value.append(file.getChar());
-                charPosition++;
-                completeWord = true;
-            } else if(next == ':') { // Labels will always end with a colon
-                value.append(file.getChar());
-                charPosition++;
-                return new Token(Token.TokenType.LABEL, lineNum, charPosition - value.length(), value.toString());
-            } else if(next == '_' || Character.isLetter(next) || Character.isDigit(next)) {
-                value.append(file.getChar());
-                charPosition++;
-            } else { // Anything that doesn't belong in a word in BASIC
-                completeWord = true;
+            switch(classOf(peek())) {
+                case SUFFIX -> { // Words have to end when one of these is encountered.
+                    position++;
+                    charPosition++;
+                    completeWord = true;
+                }
+                case COLON -> { // Labels will always end with a colon
+                    position++;
+                    charPosition++;
+                    int length = position - start;
+                    tokenList.add(Token.TokenType.LABEL, lineNum, charPosition - length, start, length);
+                    return;
+                }
+                case LETTER, DIGIT, UNDERSCORE -> {
+                    position++;
+                    charPosition++;
+                }
+                default -> completeWord = true; // Anything that doesn't belong in a word in BASIC
             }
         }
 
-        if(knownWords.containsKey(value.toString().toLowerCase())) {
-            return new Token(knownWords.get(value.toString().toLowerCase()), lineNum, charPosition - value.length());
-        } else if(knownFunctions.containsKey(value.toString().toLowerCase())) {
-            return new Token(Token.TokenType.FUNCTION, lineNum, charPosition - value.length(), value.toString());
+        int length = position - start;
+        int word = lookup(start, length);
+        if(word >= 0 && knownWords[word] != null) {
+            tokenList.add(knownWords[word], lineNum, charPosition - length, start, -1);
+        } else if(word >= 0 && knownFunctions[word]) {
+            tokenList.add(Token.TokenType.FUNCTION, lineNum, charPosition - length, start, length);
         } else {
-            return new Token(Token.TokenType.WORD, lineNum, charPosition - value.length(), value.toString());
+            tokenList.add(Token.TokenType.WORD, lineNum, charPosition - length, start, length);
         }
     }
 
-    private Token processNumber(CodeHandler file) {
-        StringBuilder number = new StringBuilder();
+    private void processNumber() {
+        int start = position;
 
-        // This is a base case for the first token, the pre increment in the Lexer.Lexer.CodeHandler causes the first character of the
-        // file to get glossed over, but changing it to post increment breaks more of the code.
-        if(tokenList.isEmpty())
-            number.append(next);
-
-        boolean decimalOccurred = false; //Only one decimal can occur in a given number
-        boolean completeNumber = false;
-        while(!completeNumber) {
-            char next = file.peek(1);
-            if (Character.isDigit(next)) {
-                number.append(file.getChar());
-                charPosition++;
-            } else if (next == '.' && !decimalOccurred) {
-                number.append(file.getChar());
-                decimalOccurred = true;
-                charPosition++;
-            } else { //Anything that doesn't belong in a BASIC number or a second decimal occurred
-                completeNumber = true;
-            }
+        int state = WHOLE;
+        while(true) {
+            state = numberStates[state][classOf(peek())];
+            if(state == DONE) //Anything that doesn't belong in a BASIC number or a second decimal occurred
+                break;
+            position++;
+            charPosition++;
         }
-        return new Token(Token.TokenType.NUMBER, lineNum, charPosition - number.length(), number.toString());
+        int length = position - start;
+        tokenList.add(Token.TokenType.NUMBER, lineNum, charPosition - length, start, length);
     }
 
-    private Token handleSymbol(CodeHandler file) {
-        char symbol = file.getChar(); // We always append the first char because it is guaranteed to be a part of the symbol
+    private void handleSymbol() {
+        char symbol = source.charAt(position++); // The first char is guaranteed to be a part of the symbol
         charPosition++;
 
-        char checkNext = file.peek(1);
-        if(twoCharSymbols.containsKey(symbol + "" + checkNext)) { // The string concatenation of the two chars
+        char checkNext = peek();
+        var pairs = twoCharSymbols[symbol];
+        if(pairs != null && checkNext < 128 && pairs[checkNext] != null) {
             charPosition++;
-            file.swallow(1); //swallow the second part of the symbol because we are already going to add it
-            return new Token(twoCharSymbols.get(symbol + "" + checkNext), lineNum, charPosition - 2);
-        } else {
-            return new Token(oneCharSymbols.get(symbol), lineNum, charPosition - 1);
+            position++; //swallow the second part of the symbol because we are already going to add it
+            tokenList.add(pairs[checkNext], lineNum, charPosition - 2, position - 2, -1);
+            return;
         }
+        tokenList.add(oneCharSymbols[symbol], lineNum, charPosition - 1, position - 1, -1);
     }
 
-    private Token handleStringLiteral(CodeHandler file) {
-        StringBuilder literal = new StringBuilder();
-        file.swallow(1); //We won't include the declarative " for the String literal -> "quote"
+    // The token covers the literal as it is written, escapes and all, the TokenStream takes them out if the value is
+    // ever needed
+    private void handleStringLiteral() {
+        position++; //We won't include the declarative " for the String literal -> "quote"
         charPosition++;
+        int start = position;
+        int escapes = 0;
 
-        next = file.peek(1);
-        while(next != '"') {
-            if(next == '\\') { //When there is an escaped character
-                file.swallow(1); //Ignore the \
-                literal.append(file.getChar()); //Append the escaped character
+        // Running off the end of the file without a closing " is an error
+        while(true) {
+            if(position >= limit)
+                throw unterminatedString();
+            char next = source.charAt(position);
+            if(next == '"')
+                break;
+            if(next == '\\') { //When there is an escaped character, keep the character after the \
+                if(position + 1 >= limit)
+                    throw unterminatedString();
+                position += 2;
                 charPosition += 2;
+                escapes++;
             } else {
-                literal.append(file.getChar());
+                position++;
                 charPosition++;
             }
-            next = file.peek(1);
-        }
-        file.swallow(1); //We won't include the final " for the String literal "quote" <-
-
-        return new Token(Token.TokenType.STRINGLITERAL, lineNum, charPosition - literal.length(), literal.toString());
-    }
-
-    private HashMap<String, Token.TokenType> fillKnownWords() {
-        var m = new HashMap<String, Token.TokenType>();
-        m.put("print", Token.TokenType.PRINT);
-        m.put("read", Token.TokenType.READ);
-        m.put("input", Token.TokenType.INPUT);
-        m.put("data", Token.TokenType.DATA);
-        m.put("gosub", Token.TokenType.GOSUB);
-        m.put("for", Token.TokenType.FOR);
-        m.put("to", Token.TokenType.TO);
-        m.put("then", Token.TokenType.THEN);
-        m.put("step", Token.TokenType.STEP);
-        m.put("next", Token.TokenType.NEXT);
-        m.put("return", Token.TokenType.RETURN);
-        m.put("if", Token.TokenType.IF);
-        m.put("function", Token.TokenType.FUNCTION);
-        m.put("while", Token.TokenType.WHILE);
-        m.put("end", Token.TokenType.END);
+        }
+        int length = position - start;
+        position++; //We won't include the final " for the String literal "quote" <-
+
+        tokenList.add(Token.TokenType.STRINGLITERAL, lineNum, charPosition - (length - escapes), start, length);
+    }
+
+    private StringIndexOutOfBoundsException unterminatedString() {
+        return new StringIndexOutOfBoundsException("String literal never closed on line " + lineNum);
+    }
+
+    // Walks the trie along the word in the source. Returns the node the word ends on, or -1 if no known word starts
+    // that way
+    private int lookup(int start, int length) {
+        int node = 0;
+        for(int i = start; i < start + length; i++) {
+            char c = source.charAt(i);
+            if(c >= 128)
+                c = Character.toLowerCase(c);
+            if(c >= 128 || columns[c] < 0)
+                return -1;
+            node = trie[node * columnCount + columns[c]];
+            if(node == 0)
+                return -1;
+        }
+        return node;
+    }
+
+    private static byte[] fillClasses() {
+        var m = new byte[128];
+        for(char c = 'a'; c <= 'z'; c++) {
+            m[c] = LETTER;
+            m[Character.toUpperCase(c)] = LETTER;
+        }
+        for(char c = '0'; c <= '9'; c++) {
+            m[c] = DIGIT;
+        }
+        m['.'] = DOT;
+        m['_'] = UNDERSCORE;
+        m['$'] = SUFFIX;
+        m['%'] = SUFFIX;
+        m[':'] = COLON;
+        m['"'] = QUOTE;
+        m[' '] = BLANK;
+        m['\t'] = BLANK;
+        m['\r'] = RETURN;
+        m['\n'] = NEWLINE;
+        m['\0'] = END;
+        for(char c : "><()+-*/=,".toCharArray()) {
+            m[c] = SYMBOL;
+        }
         return m;
     }
 
-    private HashMap<String, Token.TokenType> fillTwoCharSymbols() {
-        var m = new HashMap<String, Token.TokenType>();
-        m.put(">=", Token.TokenType.GREATERTHANEQUALS);
-        m.put("<=", Token.TokenType.LESSTHANEQUALS);
-        m.put("<>", Token.TokenType.NOTEQUALS);
+    private static int[][] fillNumberStates() {
+        var m = new int[2][END + 1];
+        Arrays.fill(m[WHOLE], DONE);
+        Arrays.fill(m[FRACTION], DONE);
+        m[WHOLE][DIGIT] = WHOLE;
+        m[WHOLE][DOT] = FRACTION;
+        m[FRACTION][DIGIT] = FRACTION;
         return m;
     }
 
-    private HashMap<Character, Token.TokenType> fillOneCharSymbols() {
-        var m = new HashMap<Character, Token.TokenType>();
-        m.put('>', Token.TokenType.GREATERTHAN);
-        m.put('<', Token.TokenType.LESSTHAN);
-        m.put('(', Token.TokenType.LPAREN);
-        m.put(')', Token.TokenType.RPAREN);
-        m.put('+', Token.TokenType.ADD);
-        m.put('-', Token.TokenType.SUBTRACT);
-        m.put('*', Token.TokenType.MULTIPLY);
-        m.put('/', Token.TokenType.DIVIDE);
-        m.put('=', Token.TokenType.EQUALS);
-        m.put(',', Token.TokenType.COMMA);
+    private static Token.TokenType[][] fillTwoCharSymbols() {
+        var m = new Token.TokenType[128][];
+        m['>'] = new Token.TokenType[128];
+        m['<'] = new Token.TokenType[128];
+        m['>']['='] = Token.TokenType.GREATERTHANEQUALS;
+        m['<']['='] = Token.TokenType.LESSTHANEQUALS;
+        m['<']['>'] = Token.TokenType.NOTEQUALS;
         return m;
     }
 
-    private HashMap<String, Token.TokenType> fillKnownFunctions() {
-        var m = new HashMap<String, Token.TokenType>();
-        m.put("random", Token.TokenType.FUNCTION);
-        m.put("left$", Token.TokenType.FUNCTION);
-        m.put("right$", Token.TokenType.FUNCTION);
-        m.put("mid$", Token.TokenType.FUNCTION);
-        m.put("num$", Token.TokenType.FUNCTION);
-        m.put("val", Token.TokenType.FUNCTION);
-        m.put("val% ", Token.TokenType.FUNCTION);
+    private static Token.TokenType[] fillOneCharSymbols() {
+        var m = new Token.TokenType[128];
+        m['>'] = Token.TokenType.GREATERTHAN;
+        m['<'] = Token.TokenType.LESSTHAN;
+        m['('] = Token.TokenType.LPAREN;
+        m[')'] = Token.TokenType.RPAREN;
+        m['+'] = Token.TokenType.ADD;
+        m['-'] = Token.TokenType.SUBTRACT;
+        m['*'] = Token.TokenType.MULTIPLY;
+        m['/'] = Token.TokenType.DIVIDE;
+        m['='] = Token.TokenType.EQUALS;
+        m[','] = Token.TokenType.COMMA;
         return m;
     }
-}
\ No newline at end of file
+
+    private static void fillKnownWords() {
+        String[] words = {"print", "read", "input", "data", "gosub", "for", "to", "then", "step", "next", "return", "if",
+                "function", "while", "end", "restore", "dim"};
+        Token.TokenType[] types = {Token.TokenType.PRINT, Token.TokenType.READ, Token.TokenType.INPUT,
+                Token.TokenType.DATA, Token.TokenType.GOSUB, Token.TokenType.FOR, Token.TokenType.TO,
+                Token.TokenType.THEN, Token.TokenType.STEP, Token.TokenType.NEXT, Token.TokenType.RETURN,
+                Token.TokenType.IF, Token.TokenType.FUNCTION, Token.TokenType.WHILE, Token.TokenType.END,
+                Token.TokenType.RESTORE, Token.TokenType.DIM};
+        String[] functions = {"random", "left$", "right$", "mid$", "num$", "val", "val% "};
+
+        // A column for every character that shows up in a known word, upper case letters share their lower case column
+        Arrays.fill(columns, -1);
+        int characters = 0;
+        for(String word : words) {
+            characters += word.length();
+        }
+        for(String word : functions) {
+            characters += word.length();
+        }
+        for(String word : words) {
+            addColumns(word);
+        }
+        for(String word : functions) {
+            addColumns(word);
+        }
+
+        trie = new int[(characters + 1) * columnCount]; // Node 0 is the root, 0 is also used as "no child"
+        knownWords = new Token.TokenType[characters + 1];
+        knownFunctions = new boolean[characters + 1];
+        trieSize = 1;
+        for(int i = 0; i < words.length; i++) {
+            knownWords[addWord(words[i])] = types[i];
+        }
+        for(String word : functions) {
+            knownFunctions[addWord(word)] = true;
+        }
+    }
+
+    private static void addColumns(String word) {
+        for(char c : word.toCharArray()) {
+            if(columns[c] < 0) {
+                columns[c] = columnCount;
+                columns[Character.toUpperCase(c)] = columnCount;
+                columnCount++;
+            }
+        }
+    }
+
+    // Returns the node the word ends on
+    private static int addWord(String word) {
+        int node = 0;
+        for(char c : word.toCharArray()) {
+            int child = node * columnCount + columns[c];
+            if(trie[child] == 0)
+                trie[child] = trieSize++;
+            node = trie[child];
+        }
+        return node;
+    }
+}
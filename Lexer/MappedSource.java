@@ -0,0 +1,173 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//The characters of a memory-mapped file. The file is decoded a chunk at a time as characters are asked for and only
+//the last couple of chunks are kept around as chars, so the whole file never has to sit on the heap.
+class MappedSource implements CharSequence {
+
+    private static final int CHUNK = 1 << 16;
+
+    private final MappedByteBuffer bytes;
+
+    //null if the file is plain ASCII, then a byte is a char and nothing has to be decoded at all
+    private final CharsetDecoder decoder;
+
+    //Where each chunk starts, in chars and in bytes. Found by one decoding pass when the file is opened
+    private int[] chunkChars = new int[16];
+    private int[] chunkBytes = new int[16];
+    private int chunkCount = 0;
+
+    private final int length;
+
+    //The two most recently decoded chunks, lexing mostly goes forwards but token values can reach back a little
+    private final char[][] cache = new char[2][];
+    private final int[] cachedChunk = {-1, -1};
+    private int lastUsed = 0;
+
+    MappedSource(String fileName) throws IOException {
+        try(var channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE)
+                throw new IOException("File too large to map");
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid after closing
+        }
+
+        boolean ascii = true;
+        for(int i = 0; i < bytes.limit() && ascii; i++) {
+            ascii = bytes.get(i) >= 0;
+        }
+        if(ascii) {
+            decoder = null;
+            length = bytes.limit();
+        } else {
+            decoder = newDecoder();
+            length = indexChunks();
+        }
+    }
+
+    //Shares the mapping and the chunk index but decodes into its own cache, so each thread can have one
+    private MappedSource(MappedSource other) {
+        bytes = other.bytes;
+        decoder = other.decoder == null ? null : newDecoder();
+        chunkChars = other.chunkChars;
+        chunkBytes = other.chunkBytes;
+        chunkCount = other.chunkCount;
+        length = other.length;
+    }
+
+    //Decoding the same way new String(bytes) does, so either CodeHandler mode sees the same characters
+    private static CharsetDecoder newDecoder() {
+        return Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    //Reading chars moves the cache around, so a MappedSource must not be shared between threads. Hand out views instead
+    MappedSource view() {
+        return new MappedSource(this);
+    }
+
+    //Decodes the whole file once without keeping anything but where every chunk starts, returns the amount of chars
+    private int indexChunks() {
+        var in = bytes.duplicate();
+        var out = CharBuffer.allocate(CHUNK);
+        int chars = 0;
+        decoder.reset();
+        while(true) {
+            if(chunkCount == chunkChars.length) {
+                chunkChars = Arrays.copyOf(chunkChars, chunkCount * 2);
+                chunkBytes = Arrays.copyOf(chunkBytes, chunkCount * 2);
+            }
+            chunkChars[chunkCount] = chars;
+            chunkBytes[chunkCount] = in.position();
+            chunkCount++;
+
+            out.clear();
+            decoder.decode(in, out, true);
+            if(!in.hasRemaining())
+                decoder.flush(out);
+            chars += out.position();
+            if(!in.hasRemaining())
+                return chars;
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        if(decoder == null)
+            return (char) bytes.get(index);
+
+        for(int i = 0; i < 2; i++) { //almost every lookup lands in a chunk that is already decoded
+            int chunk = cachedChunk[i];
+            if(chunk >= 0 && index >= chunkChars[chunk] && index - chunkChars[chunk] < cache[i].length) {
+                lastUsed = i;
+                return cache[i][index - chunkChars[chunk]];
+            }
+        }
+        int chunk = findChunk(index);
+        return decodeChunk(chunk)[index - chunkChars[chunk]];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("Invalid range " + start + " to " + end);
+        char[] chars = new char[end - start];
+        for(int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    //Binary search for the chunk holding the index
+    private int findChunk(int index) {
+        int low = 0, high = chunkCount - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(chunkChars[middle] <= index)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    //Decodes a chunk into whichever cache slot wasn't used last
+    private char[] decodeChunk(int chunk) {
+        int end = chunk + 1 < chunkCount ? chunkBytes[chunk + 1] : bytes.limit();
+        ByteBuffer in = bytes.duplicate().position(chunkBytes[chunk]).limit(end);
+        int chars = (chunk + 1 < chunkCount ? chunkChars[chunk + 1] : length) - chunkChars[chunk];
+        var out = CharBuffer.allocate(chars);
+        decoder.reset();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+
+        int slot = 1 - lastUsed;
+        cache[slot] = out.array();
+        cachedChunk[slot] = chunk;
+        lastUsed = slot;
+        return cache[slot];
+    }
+}
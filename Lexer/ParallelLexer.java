@@ -0,0 +1,180 @@
+package Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+//Lexes a big file in chunks on a ForkJoinPool. Chunks are split right after a newline that isn't inside a string
+//literal, so each one starts at the beginning of a line and gives exactly the tokens the Lexer would have given it in
+//one go. Only the line number it starts on has to be worked out beforehand.
+public class ParallelLexer {
+
+    // Files with fewer characters than this aren't worth splitting up
+    public static final int THRESHOLD = 1 << 22;
+
+    // What the lexer is in the middle of at a given character, as far as splitting goes. STOPPED is after a null
+    // character, where the Lexer quits
+    private static final int CODE = 0, STRING = 1, ESCAPE = 2, STOPPED = 3;
+
+    private final ForkJoinPool pool;
+
+    // How many characters each task scans for places to split
+    private final int segmentSize;
+
+    public ParallelLexer(ForkJoinPool pool) {
+        this(pool, 1 << 18);
+    }
+
+    public ParallelLexer(ForkJoinPool pool, int segmentSize) {
+        if(segmentSize < 1)
+            throw new IllegalArgumentException("Segment size must be positive");
+        this.pool = pool;
+        this.segmentSize = segmentSize;
+    }
+
+    // Same as Lexer.lex(CodeHandler), "Unrecognized char" messages are printed in order once every chunk is done
+    public TokenStream lex(CodeHandler file) {
+        return lex(file, null);
+    }
+
+    // Collects the "Unrecognized char" messages instead of printing them, unless warnings is null
+    public TokenStream lex(CodeHandler file, StringBuilder warnings) {
+        CharSequence source = file.getSource();
+        int start = file.getPosition();
+        int length = source.length();
+
+        // Whether a newline is inside a string literal depends on everything before it. So first each segment is
+        // scanned in parallel both as if it started in code and as if it started in a string literal
+        var scans = new ArrayList<Callable<Scan[]>>();
+        for(int from = start; from < length; from += segmentSize) {
+            int segmentStart = from, segmentEnd = (int) Math.min((long) from + segmentSize, length);
+            scans.add(() -> {
+                var text = viewOf(source);
+                return new Scan[] {scan(text, segmentStart, segmentEnd, CODE), scan(text, segmentStart, segmentEnd, STRING)};
+            });
+        }
+        var scanned = join(pool.invokeAll(scans));
+
+        // Then going through the segments in order tells which scan was the right one, and with that where the chunks
+        // start and on which line
+        var chunks = new ArrayList<Chunk>();
+        chunks.add(new Chunk(source, start, 0));
+        int state = CODE;
+        int lines = 0;
+        for(int i = 0; i < scanned.size() && state != STOPPED; i++) {
+            Scan scan;
+            if(state == ESCAPE) { // Rare enough to just scan again, the segment's first character is escaped
+                int segmentStart = start + i * segmentSize;
+                scan = scan(source, segmentStart + 1, (int) Math.min((long) segmentStart + segmentSize, length), STRING);
+            } else {
+                scan = scanned.get(i)[state];
+            }
+            if(i > 0 && scan.firstNewline() >= 0)
+                chunks.add(new Chunk(source, scan.firstNewline() + 1, lines + 1));
+            lines += scan.newlines();
+            state = scan.state();
+        }
+        for(int i = 0; i < chunks.size(); i++) {
+            chunks.get(i).end = i + 1 < chunks.size() ? chunks.get(i + 1).start : length;
+        }
+        join(pool.invokeAll(chunks));
+
+        int tokens = 0;
+        for(var chunk : chunks) {
+            tokens += chunk.tokens != null ? chunk.tokens.size() : 0;
+        }
+        var tokenList = new TokenStream(source, tokens);
+        for(var chunk : chunks) {
+            if(warnings == null)
+                System.out.print(chunk.warnings);
+            else
+                warnings.append(chunk.warnings);
+            if(chunk.failure != null)
+                throw chunk.failure;
+            tokenList.append(chunk.tokens);
+        }
+        file.swallow(chunks.get(chunks.size() - 1).lexer.getPosition() - 1 - file.getPosition());
+        return tokenList;
+    }
+
+    // Follows the string literals through part of the source, starting in the given state
+    private static Scan scan(CharSequence source, int start, int end, int state) {
+        int newlines = 0;
+        int firstNewline = -1;
+        for(int i = start; i < end && state != STOPPED; i++) {
+            char c = source.charAt(i);
+            switch(state) {
+                case CODE -> {
+                    if(c == '\n') {
+                        if(firstNewline < 0)
+                            firstNewline = i;
+                        newlines++;
+                    } else if(c == '"') {
+                        state = STRING;
+                    } else if(c == '\0') {
+                        state = STOPPED;
+                    }
+                }
+                case STRING -> {
+                    if(c == '\\')
+                        state = ESCAPE;
+                    else if(c == '"')
+                        state = CODE;
+                }
+                default -> state = STRING; // The escaped character
+            }
+        }
+        return new Scan(state, newlines, firstNewline);
+    }
+
+    // A memory-mapped source can't be read from several threads at once, strings can
+    private static CharSequence viewOf(CharSequence source) {
+        return source instanceof MappedSource mapped ? mapped.view() : source;
+    }
+
+    private static <T> List<T> join(List<Future<T>> futures) {
+        var results = new ArrayList<T>(futures.size());
+        try {
+            for(var future : futures) {
+                results.add(future.get());
+            }
+        } catch(InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Parallel lexing failed", e);
+        }
+        return results;
+    }
+
+    // The state a segment ends in, how many newlines in code it has and where the first one is, -1 if there are none
+    private record Scan(int state, int newlines, int firstNewline) {}
+
+    // A piece of the file lexed by its own Lexer. Anything the Lexer throws is kept to be rethrown once the chunks
+    // before it have had their say
+    private static class Chunk implements Callable<Chunk> {
+        private final CharSequence source;
+        private final int start;
+        private int end;
+        private final Lexer lexer;
+        private final StringBuilder warnings = new StringBuilder();
+        private TokenStream tokens;
+        private RuntimeException failure;
+
+        private Chunk(CharSequence source, int start, int lineNum) {
+            this.source = source;
+            this.start = start;
+            lexer = new Lexer(lineNum, warnings);
+        }
+
+        @Override
+        public Chunk call() {
+            try {
+                tokens = lexer.lex(viewOf(source), start, end);
+            } catch(RuntimeException e) {
+                failure = e;
+            }
+            return this;
+        }
+    }
+}
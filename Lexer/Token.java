@@ -9,7 +9,7 @@ public class Token {
 
     public enum TokenType {
         WORD, NUMBER, ENDOFLINE, PRINT, READ, INPUT, DATA, GOSUB, FOR, LABEL,
-        TO, STEP, NEXT, RETURN, IF, THEN, FUNCTION, WHILE, END, STRINGLITERAL,
+        TO, STEP, NEXT, RETURN, IF, THEN, FUNCTION, WHILE, END, RESTORE, DIM, STRINGLITERAL,
         LESSTHANEQUALS, GREATERTHANEQUALS, NOTEQUALS, LESSTHAN, GREATERTHAN,
         EQUALS, LPAREN, RPAREN, ADD, SUBTRACT, MULTIPLY, DIVIDE, COMMA
     }
@@ -30,6 +30,14 @@ public class Token {
 
     public String getValue() {return value;}
 
+    public int getLineNum() {
+        return lineNum;
+    }
+
+    public int getCharPosition() {
+        return charPosition;
+    }
+
     public TokenType getType(){
         return type;
     }
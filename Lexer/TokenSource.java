@@ -0,0 +1,12 @@
+package Lexer;
+
+//Tokens handed out a few at a time, for the Parser to pull from as it goes instead of waiting on the whole file. They
+//are added to the Parser's TokenStream still packed, so no Token is made for them
+public interface TokenSource {
+
+    //The text the tokens point into, a TokenStream they are added to has to be over the same text
+    CharSequence text();
+
+    //Adds at least one more token to the end of tokens, returns false once there are none left
+    boolean next(TokenStream tokens);
+}
@@ -0,0 +1,179 @@
+package Lexer;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+//The output of the Lexer. Tokens are packed into parallel arrays instead of being objects, and a token's value is never
+//copied out of the file: it is the stretch of the source between its offset and length, only turned into a String when
+//the Parser asks for a Token.
+public class TokenStream {
+
+    private static final Token.TokenType[] TYPES = Token.TokenType.values();
+
+    //How many tokens source() hands over at a time
+    private static final int BATCH = 256;
+
+    //The text the offsets point into
+    private final CharSequence source;
+
+    private int[] types = new int[64]; //ordinal of the TokenType
+    private int[] lines = new int[64];
+    private int[] columns = new int[64];
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64]; //-1 for tokens that have no value, like keywords and symbols
+
+    private int size = 0;
+
+    public TokenStream(CharSequence source) {
+        this.source = source;
+    }
+
+    // Sized up front for when the amount of tokens is already known
+    TokenStream(CharSequence source, int capacity) {
+        this(source);
+        types = new int[Math.max(capacity, 1)];
+        lines = new int[types.length];
+        columns = new int[types.length];
+        offsets = new int[types.length];
+        lengths = new int[types.length];
+    }
+
+    public void add(Token.TokenType type, int lineNum, int charPosition, int offset, int length) {
+        if(size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+            columns = Arrays.copyOf(columns, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        types[size] = type.ordinal();
+        lines[size] = lineNum;
+        columns[size] = charPosition;
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    // Adds every token of another stream over the same source after the tokens already here
+    void append(TokenStream other) {
+        append(other, 0, other.size);
+    }
+
+    // Adds the tokens from index from up to to of another stream over the same source
+    void append(TokenStream other, int from, int to) {
+        int count = to - from;
+        if(size + count > types.length) {
+            int capacity = Math.max(size + count, size * 2);
+            types = Arrays.copyOf(types, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.lines, from, lines, size, count);
+        System.arraycopy(other.columns, from, columns, size, count);
+        System.arraycopy(other.offsets, from, offsets, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        size += count;
+    }
+
+    // Forgets the first count tokens, the ones after them move up to the front
+    public void drop(int count) {
+        int left = size - count;
+        System.arraycopy(types, count, types, 0, left);
+        System.arraycopy(lines, count, lines, 0, left);
+        System.arraycopy(columns, count, columns, 0, left);
+        System.arraycopy(offsets, count, offsets, 0, left);
+        System.arraycopy(lengths, count, lengths, 0, left);
+        size = left;
+    }
+
+    public Token.TokenType getType(int i) {
+        return TYPES[types[i]];
+    }
+
+    public int getLineNum(int i) {
+        return lines[i];
+    }
+
+    public int getCharPosition(int i) {
+        return columns[i];
+    }
+
+    //A view of the token's text in the source, or null if it doesn't have a value
+    public CharSequence getValue(int i) {
+        if(lengths[i] < 0)
+            return null;
+        int start = offsets[i];
+        int end = start + lengths[i];
+        if(types[i] == Token.TokenType.STRINGLITERAL.ordinal()) {
+            for(int c = start; c < end; c++) {
+                if(source.charAt(c) == '\\')
+                    return unescape(start, end); //the only kind of value that isn't exactly what is in the source
+            }
+        }
+        return CharBuffer.wrap(source, start, end);
+    }
+
+    //Builds the Token object for the i-th token, with its value copied out into a String
+    public Token get(int i) {
+        var value = getValue(i);
+        return new Token(getType(i), lines[i], columns[i], value != null ? value.toString() : null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Forgets every token, the arrays are kept to be filled again
+    void clear() {
+        size = 0;
+    }
+
+    // Goes through the tokens from the start, for when a TokenSource is wanted
+    public TokenSource source() {
+        return new TokenSource() {
+            private int position = 0;
+
+            @Override
+            public CharSequence text() {
+                return source;
+            }
+
+            @Override
+            public boolean next(TokenStream tokens) {
+                if(position == size)
+                    return false;
+                int end = Math.min(size, position + BATCH);
+                tokens.append(TokenStream.this, position, end);
+                position = end;
+                return true;
+            }
+        };
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    //Drops every \ and keeps the character it escapes
+    private String unescape(int start, int end) {
+        StringBuilder literal = new StringBuilder(end - start);
+        for(int c = start; c < end; c++) {
+            if(source.charAt(c) == '\\')
+                c++;
+            literal.append(source.charAt(c));
+        }
+        return literal.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < size; i++) {
+            s.append(get(i));
+        }
+        return s.toString();
+    }
+}
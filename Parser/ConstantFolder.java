@@ -0,0 +1,108 @@
+package Parser;
+
+import Lexer.Token;
+import Parser.Node.*;
+
+//Runs after parse() and works out at compile time whatever arithmetic only involves literals, so 9*5/3 is stored as 15
+//instead of being computed every time the line runs. It also drops operations that can't change their other side,
+//like x*1 or x+0. Every expression ends up computing the same value and failing the same way it did before.
+public class ConstantFolder {
+
+    public void fold(StatementListNode statementList) {
+        for(Node statement : statementList.getList()) {
+            foldStatement(statement);
+        }
+    }
+
+    private void foldStatement(Node node) {
+        if(node instanceof AssignmentNode) {
+            var assignment = (AssignmentNode) node;
+            assignment.setExpression(fold(assignment.getExpression(), Type.ofVariable(assignment.getVariable().toString())));
+        } else if(node instanceof ArrayAssignmentNode) {
+            var assignment = (ArrayAssignmentNode) node;
+            fold(assignment.getElement(), Type.INT);
+            var type = Type.ofVariable(assignment.getElement().getName());
+            assignment.setExpression(fold(assignment.getExpression(), type));
+        } else if(node instanceof DimNode) {
+            ((DimNode) node).getArrays().forEach(array -> fold(array, Type.INT));
+        } else if(node instanceof ForNode) {
+            var loop = (ForNode) node;
+            foldStatement(loop.getInitialize());
+            loop.setEnd(fold(loop.getEnd(), Type.INT)); //bounds that fold into literals make a counted loop
+            loop.setIncrement(fold(loop.getIncrement(), Type.INT));
+        } else if(node instanceof IfNode) {
+            foldCondition(((IfNode) node).getCondition());
+        } else if(node instanceof WhileNode) {
+            foldCondition(((WhileNode) node).getCondition());
+        } else if(node instanceof LabeledStatementNode) {
+            foldStatement(((LabeledStatementNode) node).getStatement());
+        }
+    }
+
+    //Comparisons are always done on integers, a comparison of two literals is decided by the BytecodeCompiler
+    private void foldCondition(BooleanNode condition) {
+        if(condition == null)
+            return;
+        condition.setLeft(fold(condition.getLeft(), Type.INT));
+        condition.setRight(fold(condition.getRight(), Type.INT));
+    }
+
+    //The type is what the expression is evaluated as, which for an assignment is the type of its variable and for a
+    //comparison is always an int
+    private Node fold(Node node, Type type) {
+        if(node instanceof ArrayNode) //an element stays, only the indices in it fold, and they are always ints
+            ((ArrayNode) node).getIndices().replaceAll(index -> fold(index, Type.INT));
+        if(!(node instanceof MathOpNode))
+            return node;
+        var operation = ((MathOpNode) node).getOperation();
+        Node left = fold(((MathOpNode) node).getLeft(), type);
+        Node right = fold(((MathOpNode) node).getRight(), type);
+
+        //Literals of the same kind fold in any context. Two ints in a float context fail on the left one just like the
+        //int they fold into does, and two literals of different kinds are left alone for the TypeChecker to reject
+        if(left instanceof IntegerNode && right instanceof IntegerNode) {
+            int l = ((IntegerNode) left).getValue(), r = ((IntegerNode) right).getValue();
+            switch(operation) { //Java int arithmetic, so overflow wraps around exactly like it does in evaluateInt
+                case ADD -> { return new IntegerNode(l + r); }
+                case SUBTRACT -> { return new IntegerNode(l - r); }
+                case MULTIPLY -> { return new IntegerNode(l * r); }
+                case DIVIDE -> {
+                    if(r != 0) //dividing by zero has to stay an error for when the line runs
+                        return new IntegerNode(l / r);
+                }
+            }
+        } else if(left instanceof FloatNode && right instanceof FloatNode) {
+            float l = ((FloatNode) left).getValue(), r = ((FloatNode) right).getValue();
+            switch(operation) {
+                case ADD -> { return new FloatNode(l + r); }
+                case SUBTRACT -> { return new FloatNode(l - r); }
+                case MULTIPLY -> { return new FloatNode(l * r); }
+                case DIVIDE -> { return new FloatNode(l / r); }
+            }
+        }
+
+        //An identity can only go if its literal is of the context's type, otherwise it is what makes the line fail
+        if(isLiteral(right, type, 1) && (operation == Token.TokenType.MULTIPLY || operation == Token.TokenType.DIVIDE))
+            return left;
+        if(isLiteral(left, type, 1) && operation == Token.TokenType.MULTIPLY)
+            return right;
+        //-0.0 + 0.0 is 0.0, so adding a float zero isn't an identity, subtracting one is
+        boolean add = operation == Token.TokenType.ADD && type == Type.INT;
+        if(isLiteral(right, type, 0) && (operation == Token.TokenType.SUBTRACT || add))
+            return left;
+        if(isLiteral(left, type, 0) && add)
+            return right;
+
+        if(left == ((MathOpNode) node).getLeft() && right == ((MathOpNode) node).getRight())
+            return node;
+        return new MathOpNode(operation, left, right);
+    }
+
+    //Compares floats bit for bit, a -0.0 that came out of folding is not a zero that can be dropped
+    private static boolean isLiteral(Node node, Type type, int value) {
+        if(type == Type.INT)
+            return node instanceof IntegerNode && ((IntegerNode) node).getValue() == value;
+        return type == Type.FLOAT && node instanceof FloatNode
+                && Float.floatToIntBits(((FloatNode) node).getValue()) == Float.floatToIntBits(value);
+    }
+}
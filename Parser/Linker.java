@@ -0,0 +1,84 @@
+package Parser;
+
+import Parser.Node.*;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+//Runs after parse() and connects every statement to the statements it refers to: the statement after it, the label a
+//GOSUB, IF or WHILE names, the NEXT that closes a FOR and the label that closes a WHILE. Nothing has to be looked up by
+//name while a program runs after this, and a label that doesn't exist is reported before the program starts instead of
+//when it is reached.
+public class Linker {
+
+    //Maps all the label names to their node's, if a label is used twice the last one wins
+    private final HashMap<String, LabeledStatementNode> labels = new HashMap<>();
+
+    //FOR loops that have not found their NEXT yet
+    private final ArrayDeque<ForNode> openLoops = new ArrayDeque<>();
+
+    //WHILE loops by the label that will close them, the last WHILE before the label gets it
+    private final HashMap<LabeledStatementNode, WhileNode> openWhiles = new HashMap<>();
+
+    public void link(StatementListNode statementList) {
+        var list = statementList.getList();
+        for(Node search : list) {
+            if(search instanceof LabeledStatementNode) {
+                labels.put(((LabeledStatementNode) search).getName(), (LabeledStatementNode) search);
+            }
+        }
+
+        StatementNode previous = null;
+        for(Node node : list) {
+            var statement = (StatementNode) node;
+            if(previous != null)
+                previous.setNext(statement);
+            previous = statement;
+
+            //A labeled statement sits at the label's place in the program, so a FOR or NEXT in one pairs up from there.
+            //The label closing a WHILE only marks where the loop goes back, a statement on it would never run
+            if(statement instanceof LabeledStatementNode) {
+                var label = (LabeledStatementNode) statement;
+                label.setLoop(openWhiles.remove(label));
+                if(label.getLoop() != null && label.getStatement() != null)
+                    throw new RuntimeException("Label " + name(label.getName()) + " closes a WHILE and can't have a statement");
+                statement = label.getStatement();
+            }
+            linkStatement(statement);
+        }
+        if(previous != null)
+            previous.setNext(null); //makes sure the linked list is terminated with null
+
+        //A FOR without a NEXT is left unlinked, the engines only complain about it if the loop ever finishes
+        openLoops.clear();
+        openWhiles.clear();
+    }
+
+    private void linkStatement(StatementNode node) {
+        if(node instanceof GosubNode) {
+            ((GosubNode) node).setTarget(label(((GosubNode) node).getIdentifier()));
+        } else if(node instanceof IfNode) {
+            ((IfNode) node).setTarget(label(((IfNode) node).getLabel()));
+        } else if(node instanceof WhileNode) {
+            ((WhileNode) node).setEnd(label(((WhileNode) node).getLabel() + ":")); //WHILE names its label without a colon
+            openWhiles.put(((WhileNode) node).getEnd(), (WhileNode) node);
+        } else if(node instanceof ForNode) {
+            openLoops.push((ForNode) node);
+        } else if(node instanceof NextNode && !openLoops.isEmpty()) { //NEXT always closes the innermost open FOR
+            var loop = openLoops.pop();
+            loop.setClosingNext((NextNode) node);
+            ((NextNode) node).setLoop(loop);
+        }
+    }
+
+    private LabeledStatementNode label(String name) {
+        if(!labels.containsKey(name))
+            throw new RuntimeException("Label " + name(name) + " does not exist");
+        return labels.get(name);
+    }
+
+    //A label's name as it is written without its colon
+    private String name(String label) {
+        return label.substring(0, label.length() - 1);
+    }
+}
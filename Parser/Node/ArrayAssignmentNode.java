@@ -0,0 +1,42 @@
+package Parser.Node;
+
+//An assignment to an element of an array: i.e. m%(i, j) = 1.5
+public class ArrayAssignmentNode extends StatementNode {
+
+    private final ArrayNode element;
+
+    private Node expression;
+
+    private StatementNode next;
+
+    public ArrayAssignmentNode(ArrayNode element, Node expression) {
+        this.element = element;
+        this.expression = expression;
+    }
+
+    public ArrayNode getElement() {
+        return element;
+    }
+
+    public Node getExpression() {
+        return expression;
+    }
+
+    //Used by the ConstantFolder to swap in a simpler expression
+    public void setExpression(Node expression) {
+        this.expression = expression;
+    }
+
+    public void setNext(StatementNode next) {
+        this.next = next;
+    }
+
+    public StatementNode next() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return element.toString() + " EQUALS " + expression.toString();
+    }
+}
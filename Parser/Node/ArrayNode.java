@@ -0,0 +1,41 @@
+package Parser.Node;
+
+import java.util.List;
+
+//An element of an array, like m%(i, j). In a DIM the indices are the size of each dimension instead
+public class ArrayNode extends Node {
+
+    private final String name;
+
+    //One int expression per dimension, the first one is the outermost
+    private final List<Node> indices;
+
+    //Index of this array in the VariableStore, every node with the same name shares one. -1 until resolved
+    private int slot = -1;
+
+    public ArrayNode(String name, List<Node> indices) {
+        this.name = name;
+        this.indices = indices;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Node> getIndices() {
+        return indices;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + indices.toString() + ")";
+    }
+}
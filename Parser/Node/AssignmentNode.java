@@ -8,7 +8,7 @@ public class AssignmentNode extends StatementNode {
 
     //the assignment
     //Should either be a Parser.Node.VariableNode or a Parser.Node.Parser.Node.MathOpNode for now
-    private final Node expression;
+    private Node expression;
 
     private StatementNode next;
 
@@ -25,6 +25,11 @@ public class AssignmentNode extends StatementNode {
         return expression;
     }
 
+    //Used by the ConstantFolder to swap in a simpler expression
+    public void setExpression(Node expression) {
+        this.expression = expression;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
@@ -5,11 +5,11 @@ import Lexer.Token;
 //Holds a boolean expression i.e. variable1 >= variable2
 public class BooleanNode extends Node {
 
-    private final Node left; //left of comparison
+    private Node left; //left of comparison
 
     private final Token.TokenType operator; //comparison operator
 
-    private final Node right; //right of comparison
+    private Node right; //right of comparison
 
     public BooleanNode(Node left, Node right, Token.TokenType operator) {
         this.left = left;
@@ -29,6 +29,15 @@ public class BooleanNode extends Node {
         return left;
     }
 
+    //The ConstantFolder swaps in simpler sides
+    public void setLeft(Node left) {
+        this.left = left;
+    }
+
+    public void setRight(Node right) {
+        this.right = right;
+    }
+
     @Override
     public String toString() {
         return left.toString() + " " + operator + " " + right.toString();
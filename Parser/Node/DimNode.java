@@ -0,0 +1,32 @@
+package Parser.Node;
+
+import java.util.List;
+
+//DIM a(10), m%(3, 4): makes each array with the given number of elements in every dimension, indexed from 0
+public class DimNode extends StatementNode {
+
+    private final List<ArrayNode> arrays;
+
+    private StatementNode next;
+
+    public DimNode(List<ArrayNode> arrays) {
+        this.arrays = arrays;
+    }
+
+    public List<ArrayNode> getArrays() {
+        return arrays;
+    }
+
+    public void setNext(StatementNode next) {
+        this.next = next;
+    }
+
+    public StatementNode next() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "DIM " + arrays.toString();
+    }
+}
@@ -2,32 +2,68 @@ package Parser.Node;
 
 public class ForNode extends StatementNode {
 
-    private final int increment;
+    //The bounds are int expressions, worked out once each time the FOR is reached from the statement before it
+    private Node increment;
 
-    private final int end;
+    private Node end;
+
+    //Where the values of the bounds are kept while the loop runs, the end at boundSlot and the increment right after
+    //it. Set by the SlotResolver, -1 when both bounds are literals and the engines can use them as they are
+    private int boundSlot = -1;
 
     private final AssignmentNode initialize;
 
+    private NextNode closingNext; //The NEXT that ends this loop, set by the Linker. null if there isn't one
+
     private StatementNode next;
 
-    public ForNode(int increment, AssignmentNode initialize, int end) {
+    public ForNode(Node increment, AssignmentNode initialize, Node end) {
         this.increment = increment;
         this.initialize = initialize;
         this.end = end;
     }
 
-    public int getIncrement() {
+    public Node getIncrement() {
         return increment;
     }
 
-    public int getEnd() {
+    public void setIncrement(Node increment) {
+        this.increment = increment;
+    }
+
+    public Node getEnd() {
         return end;
     }
 
+    public void setEnd(Node end) {
+        this.end = end;
+    }
+
+    //Whether the loop counts with literals only, which needs no slots for its bounds
+    public boolean isCounted() {
+        return increment instanceof IntegerNode && end instanceof IntegerNode;
+    }
+
+    public int getBoundSlot() {
+        return boundSlot;
+    }
+
+    public void setBoundSlot(int boundSlot) {
+        this.boundSlot = boundSlot;
+    }
+
     public AssignmentNode getInitialize() {
         return initialize;
     }
 
+    public NextNode getClosingNext() {
+        return closingNext;
+    }
+
+    public void setClosingNext(NextNode closingNext) {
+        this.closingNext = closingNext;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
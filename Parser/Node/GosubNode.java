@@ -4,6 +4,8 @@ public class GosubNode extends StatementNode {
 
     private final String identifier; //The label that it is referencing
 
+    private LabeledStatementNode target; //The statement of that label, set by the Linker
+
     private StatementNode next;
 
     public GosubNode(String identifier) {
@@ -22,6 +24,14 @@ public class GosubNode extends StatementNode {
         return identifier;
     }
 
+    public LabeledStatementNode getTarget() {
+        return target;
+    }
+
+    public void setTarget(LabeledStatementNode target) {
+        this.target = target;
+    }
+
     @Override
     public String toString() {
         return "GOSUB(" + identifier + ")";
@@ -7,6 +7,8 @@ public class IfNode extends StatementNode {
     // All if statements in our version of BASIC call a label if the condition is true
     private final String label;
 
+    private LabeledStatementNode target; //The statement of that label, set by the Linker
+
     private StatementNode next;
 
     public IfNode(BooleanNode condition, String label) {
@@ -22,6 +24,14 @@ public class IfNode extends StatementNode {
         return label;
     }
 
+    public LabeledStatementNode getTarget() {
+        return target;
+    }
+
+    public void setTarget(LabeledStatementNode target) {
+        this.target = target;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
@@ -8,6 +8,8 @@ public class LabeledStatementNode extends StatementNode {
 
     private StatementNode next;
 
+    private WhileNode loop; //The WHILE this label closes, set by the Linker. null if it doesn't close one
+
     public LabeledStatementNode(String label, StatementNode statement) {
         this.label = label;
         this.statement = statement;
@@ -21,6 +23,14 @@ public class LabeledStatementNode extends StatementNode {
         return statement;
     }
 
+    public WhileNode getLoop() {
+        return loop;
+    }
+
+    public void setLoop(WhileNode loop) {
+        this.loop = loop;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
@@ -4,6 +4,16 @@ public class NextNode  extends StatementNode {
 
     private StatementNode next;
 
+    private ForNode loop; //The FOR this NEXT belongs to, set by the Linker. null if there isn't one
+
+    public ForNode getLoop() {
+        return loop;
+    }
+
+    public void setLoop(ForNode loop) {
+        this.loop = loop;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
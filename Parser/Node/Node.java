@@ -3,5 +3,16 @@ package Parser.Node;
 //Blueprint for an AST node
 public abstract class Node {
 
+    //What the expression evaluates to, filled in by the TypeChecker. null for statements
+    private Type type;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
     public abstract String toString();
 }
@@ -0,0 +1,20 @@
+package Parser.Node;
+
+//Sends READ back to the first DATA value
+public class RestoreNode extends StatementNode {
+
+    private StatementNode next;
+
+    public void setNext(StatementNode next) {
+        this.next = next;
+    }
+
+    public StatementNode next() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "RESTORE";
+    }
+}
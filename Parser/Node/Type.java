@@ -0,0 +1,15 @@
+package Parser.Node;
+
+//The kind of value an expression evaluates to, which every engine has its own evaluator for
+public enum Type {
+    INT, FLOAT, STRING;
+
+    //the last character of a variable signifies its type, the slot name of an array has () after it
+    public static Type ofVariable(String name) {
+        switch(name.charAt(name.length() - (name.endsWith("()") ? 3 : 1))) {
+            case '%' -> { return FLOAT; }
+            case '$' -> { return STRING; }
+            default -> { return INT; }
+        }
+    }
+}
@@ -4,10 +4,21 @@ public class VariableNode extends Node {
 
     private final String name;
 
+    //Index of this variable in the VariableStore, every node with the same name shares one. -1 until resolved
+    private int slot = -1;
+
     public VariableNode(String name) {
         this.name = name;
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
     @Override
     public String toString() {
         return name;
@@ -8,6 +8,8 @@ public class WhileNode extends StatementNode {
 
     private final String label;
 
+    private LabeledStatementNode end; //The label that ends the loop, set by the Linker
+
     private StatementNode next;
 
     public WhileNode(BooleanNode condition, String label) {
@@ -15,6 +17,22 @@ public class WhileNode extends StatementNode {
         this.label = label;
     }
 
+    public BooleanNode getCondition() {
+        return condition;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public LabeledStatementNode getEnd() {
+        return end;
+    }
+
+    public void setEnd(LabeledStatementNode end) {
+        this.end = end;
+    }
+
     public void setNext(StatementNode next) {
         this.next = next;
     }
@@ -1,6 +1,8 @@
 package Parser;
 
 import Lexer.Token;
+import Lexer.TokenSource;
+import Lexer.TokenStream;
 import Parser.Node.*;
 
 import java.util.LinkedList;
@@ -12,22 +14,27 @@ public class Parser {
 
     private final TokenHandler tokens;
 
-    public Parser(LinkedList<Token> tokenList) {
+    public Parser(TokenStream tokenList) {
         tokens = new TokenHandler(tokenList);
     }
 
+    //Parses tokens as they come out of the source instead of needing them all up front
+    public Parser(TokenSource tokenSource) {
+        tokens = new TokenHandler(tokenSource);
+    }
+
     //Finds any separators and "eats" them, returns true if there was at least one. This is because in Basic, there can
     //be any number of separators in between statements.
     private boolean acceptSeparators() {
-        Optional<Token> seperator = Optional.empty();
+        boolean seperator = false;
         if(tokens.moreTokens()) {
-            seperator = tokens.matchAndRemove(Token.TokenType.ENDOFLINE);
+            seperator = tokens.accept(Token.TokenType.ENDOFLINE);
         }
-        if(seperator.isEmpty()) {
+        if(!seperator) {
             return false;
         } else {
-            while(seperator.isPresent() && tokens.moreTokens())
-                seperator = tokens.matchAndRemove(Token.TokenType.ENDOFLINE);
+            while(seperator && tokens.moreTokens())
+                seperator = tokens.accept(Token.TokenType.ENDOFLINE);
             return true;
         }
     }
@@ -49,31 +56,36 @@ public class Parser {
         var token = tokens.matchAndRemove(Token.TokenType.LABEL);
         if(token.isPresent())
             return new LabeledStatementNode(token.get().getValue(), statement()); //label holds a singular statement
-        else if(tokens.matchAndRemove(Token.TokenType.PRINT).isPresent())
+        else if(tokens.accept(Token.TokenType.PRINT))
             return printStatement();
         else if((token = tokens.matchAndRemove(Token.TokenType.WORD)).isPresent()) //If there is a word then it will always be a variable and therefore an assignment
-            return assignment(token.get());
-        else if((tokens.matchAndRemove(Token.TokenType.DATA)).isPresent())
+            return tokens.accept(Token.TokenType.LPAREN) ? arrayAssignment(token.get())
+                    : assignment(token.get());
+        else if(tokens.accept(Token.TokenType.DIM))
+            return dim();
+        else if(tokens.accept(Token.TokenType.DATA))
             return data();
-        else if((tokens.matchAndRemove(Token.TokenType.READ)).isPresent())
+        else if(tokens.accept(Token.TokenType.READ))
             return read();
-        else if(tokens.matchAndRemove(Token.TokenType.INPUT).isPresent())
+        else if(tokens.accept(Token.TokenType.INPUT))
             return input();
-        else if(tokens.matchAndRemove(Token.TokenType.GOSUB).isPresent())
+        else if(tokens.accept(Token.TokenType.GOSUB))
             return gosub();
-        else if(tokens.matchAndRemove(Token.TokenType.RETURN).isPresent())
+        else if(tokens.accept(Token.TokenType.RETURN))
             return returnNode();
-        else if(tokens.matchAndRemove(Token.TokenType.END).isPresent())
+        else if(tokens.accept(Token.TokenType.RESTORE))
+            return restore();
+        else if(tokens.accept(Token.TokenType.END))
             return new EndNode();
-        else if(tokens.matchAndRemove(Token.TokenType.FOR).isPresent())
+        else if(tokens.accept(Token.TokenType.FOR))
             return forStatement();
-        else if(tokens.matchAndRemove(Token.TokenType.NEXT).isPresent())
+        else if(tokens.accept(Token.TokenType.NEXT))
             return new NextNode();
-        else if(tokens.matchAndRemove(Token.TokenType.END).isPresent())
+        else if(tokens.accept(Token.TokenType.END))
             return new EndNode();
-        else if(tokens.matchAndRemove(Token.TokenType.IF).isPresent())
+        else if(tokens.accept(Token.TokenType.IF))
             return ifStatement();
-        else if(tokens.matchAndRemove(Token.TokenType.WHILE).isPresent())
+        else if(tokens.accept(Token.TokenType.WHILE))
             return whileStatement();
         else
             return null; //not a valid statement
@@ -81,10 +93,10 @@ public class Parser {
 
     private BooleanNode booleanExpression() {
         var left = expression(); //left sign of expression
-        var check = tokens.peek(0); //looks to see what the next operator is
+        var check = tokens.peekType(0); //looks to see what the next operator is
         Token.TokenType operator;
-        if(check.isPresent()) {
-            switch(check.get().getType()) {
+        if(check != null) {
+            switch(check) {
                 case GREATERTHAN -> operator = Token.TokenType.GREATERTHAN;
                 case LESSTHAN -> operator = Token.TokenType.LESSTHAN;
                 case GREATERTHANEQUALS -> operator = Token.TokenType.GREATERTHANEQUALS;
@@ -95,14 +107,14 @@ public class Parser {
         } else {
             return null;
         }
-        tokens.matchAndRemove(operator);
+        tokens.accept(operator);
         var right = expression(); //right side of expression
         return new BooleanNode(left, right, operator);
     }
 
     private IfNode ifStatement() {
         var condition = booleanExpression();
-        if(tokens.matchAndRemove(Token.TokenType.THEN).isPresent()) {
+        if(tokens.accept(Token.TokenType.THEN)) {
             var label = tokens.matchAndRemove(Token.TokenType.WORD);
             return label.map(token -> new IfNode(condition, token.getValue() + ":")).orElse(null);
         } else {
@@ -127,10 +139,15 @@ public class Parser {
         return acceptSeparators() ? new ReturnNode() : null;
     }
 
+    //RESTORE is alone on its line too
+    private RestoreNode restore() {
+        return acceptSeparators() ? new RestoreNode() : null;
+    }
+
     //adds in the header for a for statement, returns null if it is not a valid for initialization
     private ForNode forStatement() {
         AssignmentNode initialize;
-        int end;
+        Node end;
         var variable = tokens.matchAndRemove(Token.TokenType.WORD);
         if(variable.isPresent()) { //looking for the assignment at the beginning of a for loop
             initialize = assignment(variable.get());
@@ -138,33 +155,43 @@ public class Parser {
             return null;
         }
 
-        variable = tokens.matchAndRemove(Token.TokenType.TO);
-        if(variable.isPresent()) { //Looking for the end number of the loop
-            variable = tokens.matchAndRemove(Token.TokenType.NUMBER);
-            if(variable.isPresent()) {
-                end = Integer.parseInt(variable.get().getValue());
-            } else {
+        if(tokens.accept(Token.TokenType.TO)) { //Looking for the end of the loop
+            end = bound();
+            if(end == null)
                 return null;
-            }
         } else {
             return null;
         }
 
-        variable = tokens.matchAndRemove(Token.TokenType.STEP);
-        if(variable.isPresent()) { //Looking to see if they added increment, this is optional
-            int increment;
-            variable = tokens.matchAndRemove(Token.TokenType.NUMBER);
-            if(variable.isPresent()) {
-                increment = Integer.parseInt(variable.get().getValue());
-                return new ForNode(increment, initialize, end);
-            } else {
+        if(tokens.accept(Token.TokenType.STEP)) { //Looking to see if they added increment, this is optional
+            var increment = bound();
+            if(increment == null)
                 return null;
-            }
+            return new ForNode(increment, initialize, end);
         } else {
-            return new ForNode(1, initialize, end); //1 is the default increment if it is not
+            return new ForNode(new IntegerNode(1), initialize, end); //1 is the default increment if it is not
         }
     }
 
+    //The end or step of a FOR, an expression that may start with a minus so that loops can count down. A minus in
+    //front of a number makes a negative literal, in front of anything else it is subtracted from 0
+    private Node bound() {
+        if(!tokens.accept(Token.TokenType.SUBTRACT))
+            return expression();
+        var negated = term();
+        if(negated == null)
+            return null;
+        Node left = negated instanceof IntegerNode ? new IntegerNode(-((IntegerNode) negated).getValue())
+                : new MathOpNode(Token.TokenType.SUBTRACT, new IntegerNode(0), negated);
+        var operator = tokens.peekType(0); //like in expression(), only one addition or subtraction can follow
+        if(operator == Token.TokenType.ADD || operator == Token.TokenType.SUBTRACT) {
+            tokens.accept(operator);
+            var right = term();
+            left = new MathOpNode(operator, left, right);
+        }
+        return left;
+    }
+
     private PrintNode printStatement() {
         var printList = printList();
         return printList != null ? new PrintNode(printList) : null; //If it was a valid PRINT statement
@@ -172,10 +199,12 @@ public class Parser {
 
     private LinkedList<Node> printList() {
         var printList = new LinkedList<Node>();
-        var comma = tokens.matchAndRemove(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
+        var comma = tokens.accept(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
         do {
             var token = tokens.matchAndRemove(Token.TokenType.WORD);
-            if(token.isPresent()) {
+            if(token.isPresent() && tokens.accept(Token.TokenType.LPAREN)) { //an element of an array
+                printList.add(new ArrayNode(token.get().getValue(), indices()));
+            } else if(token.isPresent()) {
                 printList.add(new VariableNode(token.get().getValue()));
             } else if ((token = tokens.matchAndRemove(Token.TokenType.STRINGLITERAL)).isPresent()) {
                 printList.add(new StringNode(token.get().getValue()));
@@ -184,14 +213,46 @@ public class Parser {
             }
 
             if(tokens.moreTokens()) {
-                comma = tokens.matchAndRemove(Token.TokenType.COMMA);
+                comma = tokens.accept(Token.TokenType.COMMA);
             } else {
-                comma = Optional.empty(); //It is the end of the file
+                comma = false; //It is the end of the file
             }
-        } while(comma.isPresent());
+        } while(comma);
         return printList;
     }
 
+    private DimNode dim() {
+        var arrays = new LinkedList<ArrayNode>();
+        var comma = tokens.accept(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
+        do {
+            var token = tokens.matchAndRemove(Token.TokenType.WORD); //a name with its sizes in parentheses
+            if(token.isEmpty() || !tokens.accept(Token.TokenType.LPAREN))
+                return null; //not a valid DIM statement
+            arrays.add(new ArrayNode(token.get().getValue(), indices()));
+
+            if(tokens.moreTokens()) {
+                comma = tokens.accept(Token.TokenType.COMMA);
+            } else {
+                comma = false; //It is the end of the file
+            }
+        } while(comma);
+        return new DimNode(arrays);
+    }
+
+    //The expressions between an array's parentheses, separated by commas. The opening one was matched already
+    private List<Node> indices() {
+        var indices = new LinkedList<Node>();
+        do {
+            var index = expression();
+            if(index == null)
+                throw new RuntimeException("Not a valid expression");
+            indices.add(index);
+        } while(checkComma());
+        if(!tokens.accept(Token.TokenType.RPAREN))
+            throw new RuntimeException("Not a valid expression");
+        return indices;
+    }
+
     private DataNode data() {
         var dataList = dataList();
         return dataList != null ? new DataNode(dataList) : null; //If it was a valid DATA statement
@@ -199,27 +260,24 @@ public class Parser {
 
     private List<Node> dataList() {
         var dataList = new LinkedList<Node>();
-        var comma = tokens.matchAndRemove(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
+        var comma = tokens.accept(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
         do {
             var token = tokens.matchAndRemove(Token.TokenType.STRINGLITERAL);
+            Node number;
             if(token.isPresent()) {
                 dataList.add(new StringNode(token.get().getValue()));
-            } else if((token = tokens.matchAndRemove(Token.TokenType.NUMBER)).isPresent()) {
-                try {
-                    dataList.add(new IntegerNode(Integer.parseInt(token.get().getValue())));
-                } catch(NumberFormatException e) { //If the int is not parsable then it has to be a float
-                    dataList.add(new FloatNode(Float.parseFloat(token.get().getValue())));
-                }
+            } else if((number = number()) != null) {
+                dataList.add(number);
             } else {
                 return null; //not a valid DATA entry
             }
 
             if(tokens.moreTokens()) {
-                comma = tokens.matchAndRemove(Token.TokenType.COMMA);
+                comma = tokens.accept(Token.TokenType.COMMA);
             } else {
-                comma = Optional.empty(); //It is the end of the file
+                comma = false; //It is the end of the file
             }
-        } while(comma.isPresent());
+        } while(comma);
         return dataList;
     }
 
@@ -230,7 +288,7 @@ public class Parser {
 
     private List<VariableNode> readList() {
         var readList = new LinkedList<VariableNode>();
-        var comma = tokens.matchAndRemove(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
+        var comma = tokens.accept(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
         do {
             var token = tokens.matchAndRemove(Token.TokenType.WORD); //A word will end up being a variable
             if(token.isPresent()) {
@@ -240,11 +298,11 @@ public class Parser {
             }
 
             if(tokens.moreTokens()) {
-                comma = tokens.matchAndRemove(Token.TokenType.COMMA);
+                comma = tokens.accept(Token.TokenType.COMMA);
             } else {
-                comma = Optional.empty(); //It is the end of the file
+                comma = false; //It is the end of the file
             }
-        } while(comma.isPresent());
+        } while(comma);
         return readList;
     }
 
@@ -255,7 +313,7 @@ public class Parser {
 
     private List<Node> inputList() {
         var inputList = new LinkedList<Node>();
-        var comma = tokens.matchAndRemove(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
+        var comma = tokens.accept(Token.TokenType.COMMA); //Should start off empty but needs to be initialized before the loop
         boolean stringPresent = false; // Inputs can only have variables, except for the first parameter which can be a string that prints out
         do {
             var token = tokens.matchAndRemove(Token.TokenType.WORD); //A word will end up being a variable
@@ -270,28 +328,25 @@ public class Parser {
             stringPresent = true; //makes sure that no other strings are accepted after first parameter
 
             if(tokens.moreTokens()) {
-                comma = tokens.matchAndRemove(Token.TokenType.COMMA);
+                comma = tokens.accept(Token.TokenType.COMMA);
             } else {
-                comma = Optional.empty(); //It is the end of the file
+                comma = false; //It is the end of the file
             }
-        } while(comma.isPresent());
+        } while(comma);
         return inputList;
     }
 
     //checks for commas in the function invocation
     private boolean checkComma() {
-        return tokens.matchAndRemove(Token.TokenType.COMMA).isPresent();
+        return tokens.accept(Token.TokenType.COMMA);
     }
 
     // Checks numbers for the function invocation method
     private Node checkNumbers() {
         Optional<Token> token;
-        if((token = tokens.matchAndRemove(Token.TokenType.NUMBER)).isPresent()) { // A number can either be a variable or a number
-            try {
-                return new IntegerNode(Integer.parseInt(token.get().getValue()));
-            } catch (NumberFormatException e) { //Try to convert the string to either a float or an int
-                return new FloatNode(Float.parseFloat(token.get().getValue()));
-            }
+        Node number = number(); // A number can either be a variable or a number
+        if(number != null) {
+            return number;
         } else if((token = tokens.matchAndRemove(Token.TokenType.WORD)).isPresent()) {
             return new VariableNode(token.get().getValue());
         } else {
@@ -301,7 +356,7 @@ public class Parser {
 
     private FunctionNode functionInvocation(String function) {
         if(function.equals("random")) {
-            if(tokens.matchAndRemove(Token.TokenType.LPAREN).isEmpty() | tokens.matchAndRemove(Token.TokenType.RPAREN).isEmpty())
+            if(!tokens.accept(Token.TokenType.LPAREN) | !tokens.accept(Token.TokenType.RPAREN))
                 return null; //Not valid function call
             else
                 return new FunctionNode("random", new LinkedList<>()); //remove has no parameters
@@ -315,12 +370,12 @@ public class Parser {
             if(num == null)
                 return null;
             parameters.add(num);
-            if(tokens.matchAndRemove(Token.TokenType.RPAREN).isEmpty())
+            if(!tokens.accept(Token.TokenType.RPAREN))
                 return null; //not a valid function call
             return new FunctionNode(function, parameters);
         }
 
-        if(tokens.matchAndRemove(Token.TokenType.LPAREN).isEmpty()) //A string can either be a literal or a variable
+        if(!tokens.accept(Token.TokenType.LPAREN)) //A string can either be a literal or a variable
             return null; //not a valid function call
         if((token = tokens.matchAndRemove(Token.TokenType.WORD)).isPresent())
             parameters.add(new VariableNode(token.get().getValue()));
@@ -329,7 +384,7 @@ public class Parser {
         else
             return null;
         if(function.equals("val") || function.equals("val%")) { //these functions have a singular string parameter
-            if(tokens.matchAndRemove(Token.TokenType.RPAREN).isEmpty())
+            if(!tokens.accept(Token.TokenType.RPAREN))
                 return null;
             return new FunctionNode(function, parameters);
         }
@@ -339,8 +394,8 @@ public class Parser {
         if(num == null)
             return null;
         parameters.add(num);
-        if(function.equals("left$") || function.equals("right%")) { //these functions have 2 parameters
-            if(tokens.matchAndRemove(Token.TokenType.RPAREN).isEmpty())
+        if(function.equals("left$") || function.equals("right$")) { //these functions have 2 parameters
+            if(!tokens.accept(Token.TokenType.RPAREN))
                 return null;
             return new FunctionNode(function, parameters);
         }
@@ -351,7 +406,7 @@ public class Parser {
             return null;
         parameters.add(num);
         if(function.equals("mid$")) { //these functions have 2 parameters
-            if(tokens.matchAndRemove(Token.TokenType.RPAREN).isEmpty())
+            if(!tokens.accept(Token.TokenType.RPAREN))
                 return null;
             return new FunctionNode(function, parameters);
         } else {
@@ -360,33 +415,42 @@ public class Parser {
     }
 
     private AssignmentNode assignment(Token variable) {
-        var equals = tokens.matchAndRemove(Token.TokenType.EQUALS);
-        if(equals.isPresent()) {
+        if(tokens.accept(Token.TokenType.EQUALS)) {
             return new AssignmentNode(new VariableNode(variable.getValue()), expression());
         } else {
             throw new RuntimeException("Invalid assignment");
         }
     }
 
+    //The element was matched up to its opening parenthesis already
+    private ArrayAssignmentNode arrayAssignment(Token array) {
+        var element = new ArrayNode(array.getValue(), indices());
+        if(tokens.accept(Token.TokenType.EQUALS)) {
+            return new ArrayAssignmentNode(element, expression());
+        } else {
+            throw new RuntimeException("Invalid assignment");
+        }
+    }
+
     //Checks for any addition or subtraction, we start here in order to preserve PEMDAS
     private Node expression(){
         var left = term();
         if(left == null)
             return null;
-        Optional<Token> addition;
-        Optional<Token> subtract;
+        boolean addition;
+        boolean subtract;
         if(tokens.moreTokens()) {
-            addition = tokens.matchAndRemove(Token.TokenType.ADD);
-            subtract = tokens.matchAndRemove(Token.TokenType.SUBTRACT);
+            addition = tokens.accept(Token.TokenType.ADD);
+            subtract = tokens.accept(Token.TokenType.SUBTRACT);
         } else {
             return left;
         }
-        if (addition.isPresent()) {
+        if (addition) {
             var right = term();
-            left = new MathOpNode(addition.get().getType(), left, right);
-        } else if (subtract.isPresent()) {
+            left = new MathOpNode(Token.TokenType.ADD, left, right);
+        } else if (subtract) {
             var right = term();
-            left = new MathOpNode(subtract.get().getType(), left, right);
+            left = new MathOpNode(Token.TokenType.SUBTRACT, left, right);
         }
         return left;
     }
@@ -396,20 +460,20 @@ public class Parser {
         var left = factor();
         if(left == null)
             return null;
-        Optional<Token> multiply;
-        Optional<Token> divide;
+        boolean multiply;
+        boolean divide;
         if(tokens.moreTokens()) {
-            multiply = tokens.matchAndRemove(Token.TokenType.MULTIPLY);
-            divide = tokens.matchAndRemove(Token.TokenType.DIVIDE);
+            multiply = tokens.accept(Token.TokenType.MULTIPLY);
+            divide = tokens.accept(Token.TokenType.DIVIDE);
         } else {
             return left;
         }
-        if (multiply.isPresent()) {
+        if (multiply) {
             var right = term();
-            left = new MathOpNode(multiply.get().getType(), left, right);
-        } else if (divide.isPresent()) {
+            left = new MathOpNode(Token.TokenType.MULTIPLY, left, right);
+        } else if (divide) {
             var right = term();
-            left = new MathOpNode(divide.get().getType(), left, right);
+            left = new MathOpNode(Token.TokenType.DIVIDE, left, right);
         }
         return left;
     }
@@ -421,18 +485,16 @@ public class Parser {
         if(L.isPresent()) {
             return functionInvocation(L.get().getValue());
         }
-        L = tokens.matchAndRemove(Token.TokenType.NUMBER);
-        if(L.isPresent()) { //if it is indeed a number
-            try {
-                return new IntegerNode(Integer.parseInt(L.get().getValue()));
-            } catch (NumberFormatException e) { //the number is not parsable to an int then it is a float
-                return new FloatNode(Float.parseFloat(L.get().getValue()));
-            }
+        var number = number();
+        if(number != null) { //if it is indeed a number
+            return number;
         } else if((L = tokens.matchAndRemove(Token.TokenType.WORD)).isPresent()) { //the number is a variable
+            if(tokens.accept(Token.TokenType.LPAREN)) //or an element of an array
+                return new ArrayNode(L.get().getValue(), indices());
             return new VariableNode(L.get().getValue());
-        } else if ((tokens.matchAndRemove(Token.TokenType.LPAREN)).isPresent()) {
+        } else if (tokens.accept(Token.TokenType.LPAREN)) {
             var expression = expression();
-            if ((tokens.matchAndRemove(Token.TokenType.RPAREN)).isEmpty()) {
+            if (!tokens.accept(Token.TokenType.RPAREN)) {
                 throw new RuntimeException("Not a valid expression");
             }
             return expression;
@@ -441,6 +503,20 @@ public class Parser {
         }
     }
 
+    //Matches a NUMBER and returns it as an IntegerNode, or as a FloatNode if it isn't parsable to an int. null if the
+    //next token isn't a number. An int is read straight out of the source, no String is made for it
+    private Node number() {
+        var value = tokens.peekType(0) == Token.TokenType.NUMBER ? tokens.peekValue(0) : null;
+        if(value == null)
+            return null;
+        tokens.accept(Token.TokenType.NUMBER);
+        try {
+            return new IntegerNode(Integer.parseInt(value, 0, value.length(), 10));
+        } catch (NumberFormatException e) { //the number is not parsable to an int then it is a float
+            return new FloatNode(Float.parseFloat(value.toString()));
+        }
+    }
+
     //Parses the AST tree
     public StatementListNode parse() {
         return statementList();
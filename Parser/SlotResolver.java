@@ -0,0 +1,85 @@
+package Parser;
+
+import Parser.Node.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+//Gives every distinct variable name a numeric slot and stores it on each VariableNode, so that engines can keep
+//variables in plain arrays instead of looking them up by name on every access. Arrays get slots of their own, named
+//with () after them, so an array and a variable can share a name
+public class SlotResolver {
+
+    private final HashMap<String, Integer> slots = new HashMap<>();
+
+    //Variable names by slot
+    private final ArrayList<String> names = new ArrayList<>();
+
+    //Resolves every variable in the program and returns the variable names by slot
+    public String[] resolve(StatementListNode statementList) {
+        for(Node statement : statementList.getList()) {
+            resolveStatement((StatementNode) statement);
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private void resolveStatement(StatementNode node) {
+        if(node instanceof AssignmentNode) {
+            resolveExpression(((AssignmentNode) node).getVariable());
+            resolveExpression(((AssignmentNode) node).getExpression());
+        } else if(node instanceof ArrayAssignmentNode) {
+            resolveExpression(((ArrayAssignmentNode) node).getElement());
+            resolveExpression(((ArrayAssignmentNode) node).getExpression());
+        } else if(node instanceof DimNode) {
+            ((DimNode) node).getArrays().forEach(this::resolveExpression);
+        } else if(node instanceof PrintNode) {
+            ((PrintNode) node).getList().forEach(this::resolveExpression);
+        } else if(node instanceof ReadNode) {
+            ((ReadNode) node).getValue().forEach(this::resolveExpression);
+        } else if(node instanceof InputNode) {
+            ((InputNode) node).getValue().forEach(this::resolveExpression);
+        } else if(node instanceof IfNode) {
+            resolveExpression(((IfNode) node).getCondition());
+        } else if(node instanceof WhileNode) {
+            resolveExpression(((WhileNode) node).getCondition());
+        } else if(node instanceof ForNode) {
+            var loop = (ForNode) node;
+            resolveStatement(loop.getInitialize());
+            resolveExpression(loop.getEnd());
+            resolveExpression(loop.getIncrement());
+            if(!loop.isCounted()) { //two more slots for its bounds, named so that no BASIC variable can ever share them
+                loop.setBoundSlot(names.size());
+                names.add("FOR " + loop.getInitialize().getVariable() + " TO");
+                names.add("FOR " + loop.getInitialize().getVariable() + " STEP");
+            }
+        } else if(node instanceof LabeledStatementNode) {
+            resolveStatement(((LabeledStatementNode) node).getStatement());
+        }
+    }
+
+    private void resolveExpression(Node node) {
+        if(node instanceof VariableNode) {
+            var variable = (VariableNode) node;
+            variable.setSlot(slot(variable.toString()));
+        } else if(node instanceof ArrayNode) {
+            var array = (ArrayNode) node;
+            array.setSlot(slot(array.getName() + "()"));
+            array.getIndices().forEach(this::resolveExpression);
+        } else if(node instanceof MathOpNode) {
+            resolveExpression(((MathOpNode) node).getLeft());
+            resolveExpression(((MathOpNode) node).getRight());
+        } else if(node instanceof BooleanNode) {
+            resolveExpression(((BooleanNode) node).getLeft());
+            resolveExpression(((BooleanNode) node).getRight());
+        } else if(node instanceof FunctionNode) {
+            ((FunctionNode) node).getParameters().forEach(this::resolveExpression);
+        }
+    }
+
+    private int slot(String name) {
+        return slots.computeIfAbsent(name, newName -> {
+            names.add(newName);
+            return names.size() - 1;
+        });
+    }
+}
@@ -1,42 +1,150 @@
 package Parser;
 
 import Lexer.Token;
+import Lexer.TokenSource;
+import Lexer.TokenStream;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.Optional;
 
 public class TokenHandler {
 
-    private LinkedList<Token> tokenList;
+    //Tokens that can be dropped are only dropped once this many are kept, so it isn't done for every token
+    private static final int DROP_AFTER = 64;
 
-    //Takes the output from the Lexer.Lexer lex() method
-    public TokenHandler(LinkedList<Token> tokenList) {
-        this.tokenList = tokenList;
+    private final TokenSource source;
+
+    //The tokens pulled from the source that may still be needed, packed the way the Lexer made them. Token 0 of the
+    //window is the token at index base, anything before that has been matched and dropped, so only the lookahead and
+    //whatever a mark holds on to is kept around
+    private final TokenStream window;
+    private int base = 0;
+    private boolean sourceDone;
+
+    //Index of the next token that hasn't been matched yet
+    private int position;
+
+    //Positions handed out by mark() that haven't been released, tokens from the lowest one on are kept for reset()
+    private int[] marks = new int[4];
+    private int markCount = 0;
+
+    //Takes the output from the Lexer.Lexer lex() method, which already holds every token
+    public TokenHandler(TokenStream tokenList) {
+        source = null;
+        window = tokenList;
+        sourceDone = true;
+        position = 0;
     }
 
+    //Pulls tokens from the source only as far as the parser looks ahead
+    public TokenHandler(TokenSource source) {
+        this.source = source;
+        window = new TokenStream(source.text());
+        sourceDone = false;
+        position = 0;
+    }
+
+    //The whole token i ahead, which makes a Token and a String of its value. The other peeks don't
     public Optional<Token> peek(int i) {
-        try {
-            return Optional.ofNullable(tokenList.get(i));
-        } catch(IndexOutOfBoundsException e) {
-            return Optional.empty();
-        }
+        int index = position + i;
+        return fill(index) ? Optional.of(window.get(index - base)) : Optional.empty();
+    }
+
+    //The type of the token i ahead, or null if the tokens run out before it
+    public Token.TokenType peekType(int i) {
+        int index = position + i;
+        return fill(index) ? window.getType(index - base) : null;
+    }
+
+    //The line the token i ahead is on, or -1 if the tokens run out before it
+    public int peekLineNum(int i) {
+        int index = position + i;
+        return fill(index) ? window.getLineNum(index - base) : -1;
+    }
+
+    //A view of the value of the token i ahead in the source, or null if it has none or the tokens run out before it
+    public CharSequence peekValue(int i) {
+        int index = position + i;
+        return fill(index) ? window.getValue(index - base) : null;
     }
 
     public boolean moreTokens() {
-        return !tokenList.isEmpty();
+        return fill(position);
+    }
+
+    //Removes the next token if it is of the requested type and tells if it did. Nothing is made for the token, so
+    //this is for when all that matters is that the token was there
+    public boolean accept(Token.TokenType type) {
+        if(moreTokens() && type == window.getType(position - base)) {
+            position++;
+            return true;
+        } else {
+            return false;
+        }
     }
 
     //Looks at the head of the list and removes the requested token if it is present, if not we return an empty
-    //optional. This is to help prevent null pointer exceptions.
+    //optional. This is to help prevent null pointer exceptions. The Token is only made when it is matched, for when
+    //the parser needs its value
     public Optional<Token> matchAndRemove(Token.TokenType type){
-        try {
-            if (moreTokens() && type == tokenList.get(0).getType()) {
-                return Optional.ofNullable(tokenList.remove(0));
-            } else {
-                return Optional.empty();
-            }
-        } catch (IndexOutOfBoundsException e) {
+        if(moreTokens() && type == window.getType(position - base)) {
+            return Optional.of(window.get(position++ - base));
+        } else {
             return Optional.empty();
         }
     }
+
+    //Remembers where we are so the parser can back up with reset() if what it tried didn't work out. The tokens from
+    //here on are kept until the mark is released
+    public int mark() {
+        if(markCount == marks.length)
+            marks = Arrays.copyOf(marks, markCount * 2);
+        marks[markCount++] = position;
+        return position;
+    }
+
+    public void reset(int mark) {
+        if(mark < base || mark > base + window.size())
+            throw new IllegalStateException("Cannot reset to token " + mark + ", it is no longer kept");
+        position = mark;
+    }
+
+    //Lets go of a mark once the parser knows it won't reset to it
+    public void release(int mark) {
+        for(int i = markCount - 1; i >= 0; i--) {
+            if(marks[i] == mark) {
+                marks[i] = marks[--markCount];
+                return;
+            }
+        }
+    }
+
+    //Pulls tokens until the one at index is in the window, returns false if the source runs out first
+    private boolean fill(int index) {
+        while(index >= base + window.size()) {
+            if(sourceDone)
+                return false;
+            if(window.size() >= DROP_AFTER)
+                dropUnreachable();
+            if(!source.next(window)) {
+                sourceDone = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Drops the tokens nothing can get back to anymore, as long as that is at least half of them so the ones that are
+    //kept aren't moved up over and over
+    private void dropUnreachable() {
+        int keep = position;
+        for(int i = 0; i < markCount; i++) {
+            keep = Math.min(keep, marks[i]);
+        }
+        int dropped = keep - base;
+        if(dropped > 0 && dropped >= window.size() / 2) {
+            window.drop(dropped);
+            base = keep;
+        }
+    }
 }
@@ -0,0 +1,193 @@
+package Parser;
+
+import Parser.Node.*;
+
+import java.util.HashMap;
+import java.util.List;
+
+//Gives every expression its static Type before anything runs: variables by their suffix, literals by their kind and
+//functions by what the built-in returns. An expression can only ever be evaluated as the type of the place it is used
+//in, so anything that doesn't fit is an error right away instead of when the line is reached. Arrays are checked to
+//always be used with as many indices as their DIM gives them dimensions.
+public class TypeChecker {
+
+    //How many dimensions each array has, by name
+    private final HashMap<String, Integer> dimensions = new HashMap<>();
+
+    public void check(StatementListNode statementList) {
+        for(Node statement : statementList.getList()) {
+            if(statement instanceof LabeledStatementNode)
+                statement = ((LabeledStatementNode) statement).getStatement();
+            if(statement instanceof DimNode) {
+                for(ArrayNode array : ((DimNode) statement).getArrays()) {
+                    if(dimensions.getOrDefault(array.getName(), array.getIndices().size()) != array.getIndices().size())
+                        throw new RuntimeException("Array " + array.getName() + " is dimensioned differently twice");
+                    dimensions.put(array.getName(), array.getIndices().size());
+                }
+            }
+        }
+        for(Node statement : statementList.getList()) {
+            checkStatement(statement);
+        }
+    }
+
+    private void checkStatement(Node node) {
+        if(node instanceof AssignmentNode) {
+            var variable = ((AssignmentNode) node).getVariable();
+            checkExpression(((AssignmentNode) node).getExpression(), typeVariable(variable));
+        } else if(node instanceof ArrayAssignmentNode) {
+            var element = ((ArrayAssignmentNode) node).getElement();
+            checkExpression(((ArrayAssignmentNode) node).getExpression(), typeElement(element));
+        } else if(node instanceof DimNode) {
+            for(ArrayNode array : ((DimNode) node).getArrays()) {
+                array.getIndices().forEach(size -> checkIndex(size, "Array sizes must be integers"));
+                array.setType(Type.ofVariable(array.getName()));
+            }
+        } else if(node instanceof ForNode) {
+            if(typeVariable(((ForNode) node).getInitialize().getVariable()) != Type.INT)
+                throw new RuntimeException("FOR variable must be an integer");
+            checkStatement(((ForNode) node).getInitialize());
+            for(Node bound : List.of(((ForNode) node).getEnd(), ((ForNode) node).getIncrement())) {
+                try {
+                    checkExpression(bound, Type.INT);
+                } catch(RuntimeException e) {
+                    throw new RuntimeException("FOR bounds must be integers");
+                }
+            }
+        } else if(node instanceof IfNode) {
+            checkCondition(((IfNode) node).getCondition());
+        } else if(node instanceof WhileNode) {
+            checkCondition(((WhileNode) node).getCondition());
+        } else if(node instanceof PrintNode) {
+            typeValues(((PrintNode) node).getList());
+        } else if(node instanceof InputNode) {
+            typeValues(((InputNode) node).getValue());
+        } else if(node instanceof ReadNode) {
+            ((ReadNode) node).getValue().forEach(this::typeVariable);
+        } else if(node instanceof DataNode) { //what READ does with them depends on where it is, so they are only typed
+            typeValues(((DataNode) node).getValue());
+        } else if(node instanceof LabeledStatementNode) {
+            checkStatement(((LabeledStatementNode) node).getStatement());
+        }
+    }
+
+    //Comparisons are always done on integers
+    private void checkCondition(BooleanNode condition) {
+        if(condition == null)
+            throw new RuntimeException("Invalid comparison operator");
+        checkExpression(condition.getLeft(), Type.INT);
+        checkExpression(condition.getRight(), Type.INT);
+    }
+
+    //Types the expression and makes sure it evaluates to the expected type
+    private void checkExpression(Node node, Type expected) {
+        Type type;
+        if(node instanceof IntegerNode) {
+            type = Type.INT;
+        } else if(node instanceof FloatNode) {
+            type = Type.FLOAT;
+        } else if(node instanceof StringNode) {
+            type = Type.STRING;
+        } else if(node instanceof VariableNode) {
+            type = typeVariable((VariableNode) node);
+        } else if(node instanceof ArrayNode) {
+            type = typeElement((ArrayNode) node);
+        } else if(node instanceof MathOpNode && expected != Type.STRING) { //there is no arithmetic on strings
+            checkExpression(((MathOpNode) node).getLeft(), expected);
+            checkExpression(((MathOpNode) node).getRight(), expected);
+            type = expected;
+        } else if(node instanceof FunctionNode) {
+            type = checkFunction((FunctionNode) node, expected);
+        } else {
+            type = null;
+        }
+        if(type != expected)
+            throw new RuntimeException(invalid(expected));
+        node.setType(type);
+    }
+
+    //The built-in signatures, returns what the function evaluates to
+    private Type checkFunction(FunctionNode node, Type expected) {
+        var params = node.getParameters();
+        switch(node.getFunctionName()) {
+            case "random" -> { return Type.INT; }
+            case "val" -> {
+                checkExpression(params.get(0), Type.STRING);
+                return Type.INT;
+            }
+            case "val%" -> {
+                checkExpression(params.get(0), Type.STRING);
+                return Type.FLOAT;
+            }
+            case "left$", "right$" -> {
+                checkExpression(params.get(0), Type.STRING);
+                checkExpression(params.get(1), Type.INT);
+                return Type.STRING;
+            }
+            case "mid$" -> {
+                checkExpression(params.get(0), Type.STRING);
+                checkExpression(params.get(1), Type.INT);
+                checkExpression(params.get(2), Type.INT);
+                return Type.STRING;
+            }
+            case "num$" -> { //takes either kind of number, which one decides how it is converted
+                Node param = params.get(0);
+                if(param instanceof IntegerNode || (param instanceof VariableNode && typeVariable((VariableNode) param) == Type.INT))
+                    checkExpression(param, Type.INT);
+                else
+                    checkExpression(param, Type.FLOAT);
+                return Type.STRING;
+            }
+            default -> throw new RuntimeException(invalid(expected));
+        }
+    }
+
+    private Type typeVariable(VariableNode node) {
+        node.setType(Type.ofVariable(node.toString()));
+        return node.getType();
+    }
+
+    //An element is of its array's type, which has to have been given a DIM with one index for each of its dimensions
+    private Type typeElement(ArrayNode node) {
+        Integer count = dimensions.get(node.getName());
+        if(count == null)
+            throw new RuntimeException("Array " + node.getName() + " is never dimensioned");
+        if(count != node.getIndices().size())
+            throw new RuntimeException("Array " + node.getName() + " has " + count + " dimensions");
+        node.getIndices().forEach(index -> checkIndex(index, "Array indices must be integers"));
+        node.setType(Type.ofVariable(node.getName()));
+        return node.getType();
+    }
+
+    private void checkIndex(Node index, String message) {
+        try {
+            checkExpression(index, Type.INT);
+        } catch(RuntimeException e) {
+            throw new RuntimeException(message);
+        }
+    }
+
+    //PRINT, INPUT and DATA lists only ever hold literals and variables, PRINT lists elements of arrays too
+    private void typeValues(List<Node> values) {
+        for(Node value : values) {
+            if(value instanceof VariableNode)
+                typeVariable((VariableNode) value);
+            else if(value instanceof ArrayNode)
+                typeElement((ArrayNode) value);
+            else if(value instanceof IntegerNode)
+                value.setType(Type.INT);
+            else if(value instanceof FloatNode)
+                value.setType(Type.FLOAT);
+            else if(value instanceof StringNode)
+                value.setType(Type.STRING);
+        }
+    }
+
+    private static String invalid(Type expected) {
+        switch(expected) {
+            case INT -> { return "Invalid integer variable assignment"; }
+            case FLOAT -> { return "Invalid float variable assignment"; }
+            default -> { return "Invalid string variable assignment"; }
+        }
+    }
+}
@@ -1,15 +1,21 @@
 import static org.junit.Assert.*;
 
-import Interpreter.Interpreter;
+import Compiler.BytecodeCompiler;
+import Compiler.JarCompiler;
+import Compiler.ProgramCache;
+import Interpreter.*;
 import Lexer.*;
 import Parser.*;
 import Parser.Node.*;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 public class UnitTests {
 
@@ -50,10 +56,79 @@ public class UnitTests {
         assertTrue(c.isDone());
     }
 
+    @Test
+    public void testMappedCodeHandler() throws Exception {
+        File f = createFile("This is the Lexer\n1 < 1.5");
+        CodeHandler c = new CodeHandler(f.getName(), true);
+
+        //A mapped file has to behave just like a read one
+        assertEquals('T', c.peek(0));
+        assertEquals('h', c.getChar());
+        c.swallow(1);
+        assertEquals('s', c.getChar());
+        assertEquals(' ', c.getChar());
+        assertEquals("is the Lexer", c.peekString(12));
+        c.swallow(12);
+        assertEquals('\n', c.getChar());
+        c.swallow(1);
+        assertEquals("1 < 1.5", c.remainder());
+        assertEquals('\0', c.peek(7));
+        c.swallow(7);
+        assertTrue(c.isDone());
+
+        //Non-ASCII text is decoded in chunks, make sure the lexer still sees exactly the same file across them
+        StringBuilder program = new StringBuilder();
+        for(int i = 0; i < 20000; i++) {
+            program.append("x").append(i).append(" = \"caf\u00e9 \u20ac\"\n");
+        }
+        f = createFile(program.toString());
+        var read = new Lexer().lex(new CodeHandler(f.getName()));
+        var mapped = new Lexer().lex(new CodeHandler(f.getName(), true));
+        assertEquals(read.toString(), mapped.toString());
+        assertEquals(read.getValue(read.size() - 2).toString(), mapped.getValue(mapped.size() - 2).toString());
+    }
+
+    @Test
+    public void testParallelLexer() throws Exception {
+        //Newlines inside string literals, escaped quotes and a \ right at the end of a literal all have to be kept out
+        //of the places the file gets split
+        File f = createFile("x = 1\nprint \"two\nlines\"\ny$ = \"say \\\"hi\\\"\" # 2.5.5\n\"back\\\\\"\n" +
+                "label: for i = 1 to 10 step 2\r\n@ left$(\"a\nb\", 1) <> 3\n\nend");
+        var pool = new java.util.concurrent.ForkJoinPool(4);
+        var expected = new ByteArrayOutputStream();
+        var console = System.out;
+        System.setOut(new PrintStream(expected));
+        TokenStream l;
+        try {
+            l = new Lexer().lex(new CodeHandler(f.getName()));
+        } finally {
+            System.setOut(console);
+        }
+
+        for(int segmentSize = 1; segmentSize < 20; segmentSize++) {
+            var printed = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(printed));
+            TokenStream p;
+            try {
+                p = new ParallelLexer(pool, segmentSize).lex(new CodeHandler(f.getName()));
+            } finally {
+                System.setOut(console);
+            }
+            assertEquals(expected.toString(), printed.toString());
+            assertEquals(l.size(), p.size());
+            for(int i = 0; i < l.size(); i++) {
+                assertEquals(l.get(i).toString(), p.get(i).toString());
+                assertEquals(l.getLineNum(i), p.getLineNum(i));
+                assertEquals(l.getCharPosition(i), p.getCharPosition(i));
+            }
+        }
+        pool.shutdown();
+    }
+
     @Test
     public void testLexer1() throws Exception {
         File f = createFile("This is the Lexer\n1.3.3 is not a number\nfirst$second%last");
-        LinkedList<Token> l = new Lexer().lex(f.getName());
+        TokenStream l = new Lexer().lex(f.getName());
 
         //Testing for correct amount of tokens
         assertEquals(15, l.size());
@@ -81,7 +156,7 @@ public class UnitTests {
         File f = createFile("phrase = \"This is a string literal and \\\"this is a quote\\\"\"\n" +
                                          "2 > 1 IF 10 <> 9 THEN function\n" +
                                          "label: 2/2 = 1");
-        LinkedList<Token> l = new Lexer().lex(f.getName());
+        TokenStream l = new Lexer().lex(f.getName());
 
         //reaffirming length of list
         assertEquals(20, l.size());
@@ -100,12 +175,18 @@ public class UnitTests {
 
         //Testing label
         assertEquals("LABEL(label:) ", l.get(14).toString());
+
+        //A string literal that runs off the end of the file, even right after a \, is an error
+        File open = createFile("print \"never closed");
+        assertThrows(StringIndexOutOfBoundsException.class, () -> new Lexer().lex(open.getName()));
+        File escaped = createFile("print \"never closed\\");
+        assertThrows(StringIndexOutOfBoundsException.class, () -> new Lexer().lex(escaped.getName()));
     }
 
     @Test
     public void testLexerFunctions() throws Exception {
         File f = createFile("RANDOM()\nmid$(x$, 3, 10)");
-        LinkedList<Token> l = new Lexer().lex(f.getName());
+        TokenStream l = new Lexer().lex(f.getName());
 
         //Testing function lex-ability
         assertEquals("FUNCTION(RANDOM) ", l.get(0).toString());
@@ -113,6 +194,46 @@ public class UnitTests {
         assertEquals(12, l.size());
     }
 
+    @Test
+    public void testLexerKeywordCase() throws Exception {
+        File f = createFile("PrInT Left$ val% pRiNtEr fo for: 12.5.5 <>=");
+        TokenStream l = new Lexer().lex(f.getName());
+
+        //Keywords and functions match in any case, but only when the whole word is spelled the same
+        assertEquals(Token.TokenType.PRINT, l.getType(0));
+        assertEquals("FUNCTION(Left$) ", l.get(1).toString());
+        assertEquals("WORD(val%) ", l.get(2).toString());
+        assertEquals("WORD(pRiNtEr) ", l.get(3).toString());
+        assertEquals("WORD(fo) ", l.get(4).toString());
+        assertEquals("LABEL(for:) ", l.get(5).toString());
+
+        //Numbers stop at their second decimal, and the longest symbol wins
+        assertEquals("NUMBER(12.5) ", l.get(6).toString());
+        assertEquals("NUMBER(.5) ", l.get(7).toString());
+        assertEquals(Token.TokenType.NOTEQUALS, l.getType(8));
+        assertEquals(Token.TokenType.EQUALS, l.getType(9));
+        assertEquals(42, l.getCharPosition(9));
+        assertEquals(10, l.size());
+    }
+
+    @Test
+    public void testTokenStream() throws Exception {
+        File f = createFile("  count$ = \"a \\\"b\\\"\"\nPRINT count$");
+        TokenStream l = new Lexer().lex(f.getName());
+
+        //Values point back into the file instead of being copied, escaped literals are the exception
+        assertEquals(6, l.size());
+        assertEquals(Token.TokenType.WORD, l.getType(0));
+        assertEquals("count$", l.getValue(0).toString());
+        assertEquals("a \"b\"", l.getValue(2).toString());
+        assertNull(l.getValue(1));
+
+        //Leading whitespace is skipped and counted like anywhere else
+        assertEquals(2, l.getCharPosition(0));
+        assertEquals(1, l.getLineNum(5));
+        assertEquals("WORD(count$) ", l.get(5).toString());
+    }
+
     @Test
     public void testTokenHandler() throws Exception {
         File f = createFile("1 + 2 * 3");
@@ -128,16 +249,89 @@ public class UnitTests {
         //Testing moreTokens
         assertTrue(t.moreTokens());
 
+        //The type, line and value can be looked at without a Token being made
+        assertEquals(Token.TokenType.MULTIPLY, t.peekType(3));
+        assertEquals("3", t.peekValue(4).toString());
+        assertNull(t.peekValue(1));
+        assertEquals(0, t.peekLineNum(4));
+        assertNull(t.peekType(5));
+        assertEquals(-1, t.peekLineNum(5));
+
         //Testing matchAndRemove
         assertEquals("NUMBER(1) ", t.matchAndRemove(Token.TokenType.NUMBER).get().toString());
         assertEquals("ADD ", t.matchAndRemove(Token.TokenType.ADD).get().toString());
         assertFalse(t.matchAndRemove(Token.TokenType.EQUALS).isPresent());
+        assertFalse(t.accept(Token.TokenType.EQUALS));
         assertEquals("NUMBER(2) ", t.matchAndRemove(Token.TokenType.NUMBER).get().toString());
-        assertEquals("MULTIPLY ", t.matchAndRemove(Token.TokenType.MULTIPLY).get().toString());
+        assertTrue(t.accept(Token.TokenType.MULTIPLY));
         assertEquals("NUMBER(3) ", t.matchAndRemove(Token.TokenType.NUMBER).get().toString());
 
         //Testing moreTokens
         assertFalse(t.moreTokens());
+        assertFalse(t.peek(0).isPresent());
+
+        //Testing mark and reset
+        t.reset(1);
+        int mark = t.mark();
+        assertEquals("ADD ", t.matchAndRemove(Token.TokenType.ADD).get().toString());
+        t.reset(mark);
+        assertEquals("ADD ", t.peek(0).get().toString());
+    }
+
+    @Test
+    public void testTokenSources() throws Exception {
+        StringBuilder program = new StringBuilder();
+        for(int i = 0; i < 300; i++) {
+            program.append("x").append(i).append(" = ").append(i).append(" * 2\nprint x").append(i).append("\n");
+        }
+        File f = createFile(program.toString());
+        var all = new Lexer().lex(f.getName());
+
+        //Lexing lazily, on another thread or not, gives the same tokens as lexing up front. The lazy lexer adds them
+        //one at a time straight into the stream it is handed
+        var lazy = new Lexer().stream(new CodeHandler(f.getName()));
+        var buffered = new BufferedTokenSource(new Lexer().stream(new CodeHandler(f.getName())), 2);
+        var lazyTokens = new TokenStream(lazy.text());
+        var bufferedTokens = new TokenStream(buffered.text());
+        for(int i = 0; i < all.size(); i++) {
+            assertTrue(lazy.next(lazyTokens));
+            assertEquals(i + 1, lazyTokens.size());
+        }
+        while(buffered.next(bufferedTokens));
+        assertEquals(all.toString(), lazyTokens.toString());
+        assertEquals(all.toString(), bufferedTokens.toString());
+        assertFalse(lazy.next(lazyTokens));
+        assertFalse(buffered.next(bufferedTokens));
+
+        //Whatever the lexer throws comes out after the tokens before it
+        f = createFile("x = 1\nprint \"never closed");
+        var failing = new BufferedTokenSource(new Lexer().stream(new CodeHandler(f.getName())));
+        var failingTokens = new TokenStream(failing.text());
+        assertThrows(StringIndexOutOfBoundsException.class, () -> {
+            while(failing.next(failingTokens));
+        });
+        assertEquals(5, failingTokens.size());
+
+        //The TokenHandler only holds on to tokens it can still get back to
+        var t = new TokenHandler(all.source());
+        int mark = t.mark();
+        for(int i = 0; i < 100; i++) {
+            t.matchAndRemove(t.peek(0).get().getType());
+        }
+        t.reset(mark);
+        assertEquals("WORD(x0) ", t.peek(0).get().toString());
+        t.release(mark);
+        for(int i = 0; i < 900; i++) {
+            t.matchAndRemove(t.peek(0).get().getType());
+        }
+        assertEquals("WORD(x100) ", t.peek(0).get().toString());
+        assertThrows(IllegalStateException.class, () -> t.reset(mark));
+
+        //And the Parser can work straight off of a source
+        var parsed = new Parser(new BufferedTokenSource(new Lexer().stream(new CodeHandler(f.getName()))));
+        assertThrows(StringIndexOutOfBoundsException.class, parsed::parse);
+        assertEquals(new Parser(all).parse().toString(),
+                new Parser(new Lexer().stream(new CodeHandler(createFile(program.toString()).getName()))).parse().toString());
     }
 
     @Test
@@ -313,6 +507,731 @@ public class UnitTests {
         System.setOut(System.out);
     }
 
+    @Test
+    public void testTieredInterpreter() throws Exception {
+        File f = createFile("total = 0\n" +
+                "count = 0\n" +
+                "FOR i = 0 TO 50\n" +
+                "FOR j = 0 TO 3\n" +
+                "total = total + j\n" +
+                "NEXT\n" +
+                "IF i > 45 THEN show\n" +
+                "GOSUB add\n" +
+                "NEXT\n" +
+                "PRINT total, count\n" +
+                "END\n" +
+                "show: PRINT i\n" +
+                "add: count = count + 1\n");
+        String interpreted = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), Integer.MAX_VALUE));
+        //A FOR whose variable is already assigned only steps it, so the inner loop only runs through once
+        assertEquals("46\r\n47\r\n48\r\n49\r\n3\r\n50\r\n", interpreted);
+
+        //The loops and labels get compiled part way through and carry on with the same variables
+        for(int threshold : new int[] {1, 2, 10}) {
+            var engine = new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), threshold);
+            assertEquals(interpreted, runAndCapture(engine));
+        }
+    }
+
+    @Test
+    public void testSpecializingInterpreter() throws Exception {
+        File f = createFile("total = 0\n" +
+                "same = 0\n" +
+                "READ digits$\n" +
+                "FOR i = 0 TO 10\n" +
+                "j = i + 1\n" +
+                "d$ = mid$(digits$, i, j)\n" +
+                "total = total + val(d$)\n" +
+                "same = same + val(\"7\")\n" +
+                "NEXT\n" +
+                "PRINT total, same\n" +
+                "END\n" +
+                "DATA \"0123456789\"\n");
+        //every node is rewritten on its first run into the one for its types, variables read their slots directly
+        var program = new Parser(new Lexer().lex(f.getName())).parse();
+        var engine = new Interpreter(program, Integer.MAX_VALUE);
+        assertEquals("45\r\n70\r\n", runAndCapture(engine));
+        var list = program.getList();
+        assertEquals("IntAdd(IntRead, IntLiteral)", tree(engine, list.get(4)));
+        assertEquals("IntAdd(IntRead, IntVal(StringRead))", tree(engine, list.get(6)));
+        assertEquals("IntAdd(IntRead, IntVal(StringLiteral))", tree(engine, list.get(7)));
+        assertEquals("45\r\n70\r\n", runAndCapture(new VirtualMachine(new Parser(new Lexer().lex(f.getName())).parse())));
+    }
+
+    @Test
+    public void testCallDepth() throws Exception {
+        //a label that calls itself is stopped at the maximum depth instead of overflowing the Java stack
+        File f = createFile("GOSUB forever\nEND\nforever: GOSUB forever\n");
+        for(Engine engine : engines(f, 100, BufferedInput::new, () -> null)) {
+            var e = assertThrows(RuntimeException.class, engine::run);
+            assertEquals("GOSUB nested deeper than 100", e.getMessage());
+        }
+
+        //the compiled class can't stop a chain of labels halfway, one that goes deeper is left to the Interpreter
+        f = createFile("GOSUB one\nEND\none: GOSUB two\ntwo: GOSUB three\nthree: PRINT \"deep\"\n");
+        var chain = new Parser(new Lexer().lex(f.getName())).parse();
+        var jit = new HiddenClassEngine(chain, 2, new BufferedOutput(), new BufferedInput(), null);
+        assertFalse(jit.isCompiled());
+        var e = assertThrows(RuntimeException.class, jit::run);
+        assertEquals("GOSUB nested deeper than 2", e.getMessage());
+        jit = new HiddenClassEngine(chain, 3, new BufferedOutput(), new BufferedInput(), null);
+        assertTrue(jit.isCompiled());
+        assertEquals("deep\r\n", runAndCapture(jit));
+
+        //RETURN goes back to the GOSUB, not to a FOR that is running
+        f = createFile("x = 0\n" +
+                "FOR i = 0 TO 3\n" +
+                "GOSUB back\n" +
+                "x = x + 1\n" +
+                "NEXT\n" +
+                "PRINT x\n" +
+                "GOSUB chain\n" +
+                "PRINT x\n" +
+                "END\n" +
+                "back: RETURN\n" +
+                "chain: GOSUB add\n" +
+                "add: x = x + 10\n");
+        for(Engine engine : engines(f)) {
+            assertEquals("3\r\n13\r\n", runAndCapture(engine));
+        }
+
+        f = createFile("RETURN\nEND\n");
+        var engine = new Interpreter(new Parser(new Lexer().lex(f.getName())).parse());
+        e = assertThrows(RuntimeException.class, engine::run);
+        assertEquals("RETURN without GOSUB", e.getMessage());
+    }
+
+    @Test
+    public void testCountedLoop() throws Exception {
+        File f = createFile("n = 4\n" +
+                "total = 0\n" +
+                "FOR i = n * 2 TO -n STEP -3\n" +
+                "total = total + i\n" +
+                "n = n + 1\n" +
+                "NEXT\n" +
+                "PRINT i, total, n\n" +
+                "FOR j = 10 TO 0 STEP -5\n" +
+                "total = total + j\n" +
+                "NEXT\n" +
+                "PRINT total\n" +
+                "END\n");
+        var t = new Parser(new Lexer().lex(f.getName())).parse();
+        assertEquals("FOR(i EQUALS Parser.Node.Parser.Node.MathOpNode(MULTIPLY, n, 2) TO " +
+                "Parser.Node.Parser.Node.MathOpNode(SUBTRACT, 0, n), -3)", t.getList().get(2).toString());
+
+        //the bounds are worked out once, changing n in the loop doesn't move its end
+        String expected = "-4\r\n14\r\n8\r\n29\r\n";
+        assertEquals(expected, runAndCapture(new Interpreter(t, Integer.MAX_VALUE)));
+        assertEquals(expected, runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), 1)));
+        assertEquals(expected, runAndCapture(new VirtualMachine(new Parser(new Lexer().lex(f.getName())).parse())));
+        assertEquals(expected, runAndCapture(new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse())));
+        var jit = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        assertTrue(jit.isCompiled());
+        assertEquals(expected, runAndCapture(jit));
+    }
+
+    @Test
+    public void testWhile() throws Exception {
+        File f = createFile("i = 0\n" +
+                "count = 0\n" +
+                "WHILE i < 2 outer\n" +
+                "j = 0\n" +
+                "WHILE j < 5 inner\n" +
+                "count = count + 1\n" +
+                "j = j + 1\n" +
+                "inner:\n" +
+                "count = count + 1\n" +
+                "i = i + 1\n" +
+                "outer:\n" +
+                "WHILE i > 5 never\n" +
+                "count = 100\n" +
+                "never:\n" +
+                "PRINT count, j\n" +
+                "END\n");
+        var t = new Parser(new Lexer().lex(f.getName())).parse();
+        new Linker().link(t);
+
+        //each WHILE's label knows the loop it closes, so reaching it is the jump back
+        var outer = (WhileNode) t.getList().get(2);
+        assertSame(outer, outer.getEnd().getLoop());
+
+        String expected = "12\r\n5\r\n";
+        assertEquals(expected, runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), Integer.MAX_VALUE)));
+        assertEquals(expected, runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), 1)));
+        assertEquals(expected, runAndCapture(new VirtualMachine(new Parser(new Lexer().lex(f.getName())).parse())));
+        assertEquals(expected, runAndCapture(new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse())));
+        var jit = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        assertTrue(jit.isCompiled());
+        assertEquals(expected, runAndCapture(jit));
+    }
+
+    @Test
+    public void testBufferedOutput() throws Exception {
+        //every write that reaches the stream is counted
+        var writes = new int[1];
+        var printed = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes[0]++;
+                super.write(b, off, len);
+            }
+        };
+        var output = new BufferedOutput(printed, 32, false);
+        output.println("caf\u00e9 \u20ac\ud83d\ude00 and then some more text");
+        output.println(42);
+        output.println(1.5f);
+        output.flush();
+        String expected = "caf\u00e9 \u20ac\ud83d\ude00 and then some more text" + System.lineSeparator() + "42"
+                + System.lineSeparator() + "1.5" + System.lineSeparator();
+        assertEquals(expected, printed.toString(StandardCharsets.UTF_8));
+        assertTrue(writes[0] > 1); //a buffer of 32 bytes has to go out more than once for this
+
+        //numbers are written as digits by the output itself, they have to read exactly like toString's
+        printed.reset();
+        var text = new StringBuilder();
+        for(long bits = 0; bits <= 0xFFFFFFFFL; bits += 65521) {
+            float f = Float.intBitsToFloat((int) bits);
+            output.println(f);
+            output.println((int) bits);
+            text.append(f).append(System.lineSeparator()).append((int) bits).append(System.lineSeparator());
+        }
+        for(float f : new float[] {0f, -0f, 1f, 0.1f, 1.0E7f, 9999999f, 0.001f, 0.00099999994f, Float.MIN_VALUE,
+                Float.MAX_VALUE, Float.MIN_NORMAL, Float.NaN, Float.NEGATIVE_INFINITY, 1.0E-36f, 2.0E-44f}) {
+            output.println(f);
+            text.append(f).append(System.lineSeparator());
+        }
+        output.println(Integer.MIN_VALUE);
+        text.append(Integer.MIN_VALUE).append(System.lineSeparator());
+        output.flush();
+        assertEquals(text.toString(), printed.toString());
+
+        //nothing goes out until the program stops, which it does after printing with an error
+        File f = createFile("x = 3\nPRINT x\nPRINT y\n");
+        printed.reset();
+        writes[0] = 0;
+        var interpreter = new Interpreter(new Parser(new Lexer().lex(f.getName())).parse(), Integer.MAX_VALUE,
+                Interpreter.MAX_DEPTH, new BufferedOutput(printed, BufferedOutput.CAPACITY, false));
+        assertThrows(RuntimeException.class, interpreter::run);
+        assertEquals("3" + System.lineSeparator(), printed.toString());
+        assertEquals(1, writes[0]);
+        printed.reset();
+        writes[0] = 0;
+        var jit = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse(),
+                new BufferedOutput(printed, BufferedOutput.CAPACITY, false), new BufferedInput(), null);
+        assertTrue(jit.isCompiled()); //the compiled class writes to the same output as the Interpreter
+        assertThrows(RuntimeException.class, jit::run);
+        assertEquals("3" + System.lineSeparator(), printed.toString());
+        assertEquals(1, writes[0]);
+
+        //writing every few bytes doesn't need a buffer that small
+        printed.reset();
+        writes[0] = 0;
+        output = new BufferedOutput(printed, 1, false);
+        output.println(1);
+        output.println("two");
+        assertEquals(2, writes[0]);
+
+        //the prompt is out before INPUT waits for what it asks for
+        f = createFile("PRINT \"first\"\nINPUT \"n?\", n\nPRINT n\n");
+        var console = System.in;
+        var prompted = new String[1];
+        System.setIn(new InputStream() {
+            private final byte[] typed = "7\n".getBytes();
+            private int position = 0;
+
+            @Override
+            public int read() {
+                prompted[0] = prompted[0] == null ? printed.toString() : prompted[0];
+                return position < typed.length ? typed[position++] : -1;
+            }
+        });
+        try {
+            printed.reset();
+            new VirtualMachine(new BytecodeCompiler().compile(new Parser(new Lexer().lex(f.getName())).parse()),
+                    new BufferedOutput(printed, BufferedOutput.CAPACITY, true)).run();
+        } finally {
+            System.setIn(console);
+        }
+        assertEquals("first" + System.lineSeparator() + "n?", prompted[0]);
+        assertEquals("first" + System.lineSeparator() + "n?7" + System.lineSeparator(), printed.toString());
+    }
+
+    @Test
+    public void testBufferedInput() throws Exception {
+        //a stream that hands out a byte at a time cuts every value in two somewhere
+        var values = new StringBuilder("12,-7  +3\r\n2147483647,-2147483648\tcaf\u00e9 x,,y\n");
+        var floats = new float[2000];
+        var random = new Random(7);
+        for(int i = 0; i < floats.length; i++) {
+            String text = i % 3 == 0 ? Float.toString(random.nextFloat() * 1000) : i % 3 == 1
+                    ? (random.nextInt(2000000) - 1000000) / 1000.0 + "" : random.nextInt(100) + "e" + (random.nextInt(60) - 30);
+            floats[i] = Float.parseFloat(text);
+            values.append(text).append(i % 10 == 9 ? "\n" : ", ");
+        }
+        values.append("1.5.2 99999999999");
+        byte[] bytes = values.toString().getBytes(StandardCharsets.UTF_8);
+        var input = new BufferedInput(new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() {
+                return position < bytes.length ? bytes[position++] : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if(position == bytes.length)
+                    return -1;
+                b[off] = bytes[position++];
+                return 1;
+            }
+        });
+        assertEquals(12, input.readInt());
+        assertEquals(-7, input.readInt());
+        assertEquals(3, input.readInt());
+        assertEquals(Integer.MAX_VALUE, input.readInt());
+        assertEquals(Integer.MIN_VALUE, input.readInt());
+        assertEquals("caf\u00e9", input.readString());
+        assertEquals("x", input.readString());
+        assertEquals("y", input.readString());
+        for(float f : floats) {
+            assertEquals(Float.floatToIntBits(f), Float.floatToIntBits(input.readFloat()));
+        }
+
+        //a bad value is reported with the line it is on
+        var e = assertThrows(RuntimeException.class, input::readFloat);
+        assertEquals("Expected input float, got \"1.5.2\" on input line 203", e.getMessage());
+        e = assertThrows(RuntimeException.class, input::readInt);
+        assertEquals("Expected input int, got \"99999999999\" on input line 203", e.getMessage());
+        e = assertThrows(RuntimeException.class, input::readString);
+        assertEquals("Expected input string, input ended on line 203", e.getMessage());
+
+        //every INPUT takes up where the last one stopped, nothing read ahead gets lost
+        File f = createFile("FOR i = 1 TO 4\nINPUT a, b%\nPRINT a, b%\nNEXT\nEND\n");
+        String expected = "1\r\n0.5\r\n2\r\n1.5\r\n3\r\n2.5\r\n";
+        byte[] records = "1, 0.5\n2, 1.5\n3,2.5\n".getBytes();
+        for(Engine engine : engines(f, Interpreter.MAX_DEPTH, () -> new BufferedInput(new ByteArrayInputStream(records)),
+                () -> null)) {
+            assertEquals(expected, runAndCapture(engine));
+        }
+    }
+
+    @Test
+    public void testData() throws Exception {
+        //READ takes the values of every DATA statement in order, a few at a time, and RESTORE starts them over
+        File f = createFile("DATA 1, \"one\"\n" +
+                "FOR i = 1 TO 4\n" +
+                "READ a, name$\n" +
+                "PRINT name$, a\n" +
+                "NEXT\n" +
+                "RESTORE\n" +
+                "READ a\n" +
+                "PRINT a\n" +
+                "END\n" +
+                "DATA 2, \"two\"\n" +
+                "last: DATA 3, \"three\"\n");
+        String expected = "one\r\n1\r\ntwo\r\n2\r\nthree\r\n3\r\n1\r\n";
+        for(Engine engine : engines(f)) {
+            assertEquals(expected, runAndCapture(engine));
+        }
+
+        //running out of values or getting one of another type only fails the READ that gets there
+        f = createFile("READ a\nPRINT a\nREAD b\nDATA 1\n");
+        var t = new Parser(new Lexer().lex(f.getName())).parse();
+        var e = assertThrows(RuntimeException.class, () -> runAndCapture(new VirtualMachine(t)));
+        assertEquals("Out of DATA", e.getMessage());
+        f = createFile("READ a\nREAD b$\nDATA 1, 2\n");
+        var mismatched = new Parser(new Lexer().lex(f.getName())).parse();
+        e = assertThrows(RuntimeException.class, () -> runAndCapture(new ClosureEngine(mismatched)));
+        assertEquals("Mismatched types in READ list", e.getMessage());
+
+        //a data file carries on after the program's own values, and RESTORE starts both over
+        File values = File.createTempFile("data", ".txt");
+        values.deleteOnExit();
+        try(var w = new FileWriter(values)) {
+            w.write("2, two\n3 three\n");
+        }
+        f = createFile("FOR i = 1 TO 4\n" +
+                "READ a, name$\n" +
+                "PRINT name$, a\n" +
+                "NEXT\n" +
+                "RESTORE\n" +
+                "READ a, name$, b\n" +
+                "PRINT a, b\n" +
+                "READ c$, d, d$, e\n" +
+                "DATA 1, \"one\"\n");
+        expected = "one\r\n1\r\ntwo\r\n2\r\nthree\r\n3\r\n1\r\n2\r\n";
+        Supplier<DataSource> more = () -> {
+            try {
+                return new DataFile(values.toPath());
+            } catch(IOException failed) {
+                throw new UncheckedIOException(failed);
+            }
+        };
+        for(Engine engine : engines(f, Interpreter.MAX_DEPTH, BufferedInput::new, more)) { //the Interpreter runs --jit
+            var printed = new ByteArrayOutputStream();
+            var console = System.out;
+            System.setOut(new PrintStream(printed));
+            e = assertThrows(RuntimeException.class, engine::run);
+            System.setOut(console);
+            assertEquals("Out of DATA", e.getMessage());
+            assertEquals(expected, printed.toString());
+        }
+    }
+
+    @Test
+    public void testArrays() throws Exception {
+        //elements start at zero or "", indices count from 0 and the last one of each dimension is one below its size
+        File f = createFile("DIM squares(5), grid%(2, 3), names$(2)\n" +
+                "FOR i = 0 TO 5\n" +
+                "squares(i) = i * i\n" +
+                "NEXT\n" +
+                "grid%(1, 2) = 2.5\n" +
+                "grid%(0, 1) = grid%(1, 2) * 2.0\n" +
+                "names$(1) = left$(\"two!\", 3)\n" +
+                "x = squares(3) + squares(4)\n" +
+                "PRINT x, squares(2), grid%(0, 1), grid%(1, 2), grid%(1, 0), names$(1), names$(0)\n");
+        String expected = "25\r\n4\r\n5.0\r\n2.5\r\n0.0\r\ntwo\r\n\r\n";
+        for(Engine engine : engines(f)) {
+            if(engine instanceof HiddenClassEngine)
+                assertTrue(((HiddenClassEngine) engine).isCompiled());
+            assertEquals(expected, runAndCapture(engine));
+        }
+
+        //every index is checked against its own dimension, and an array can't be used before its DIM runs
+        String outside = "DIM grid(2, 3)\nPRINT grid(0, 3)\n";
+        String early = "x = a(0)\nDIM a(2)\n";
+        for(String program : new String[] {outside, early}) {
+            for(Engine engine : engines(createFile(program))) {
+                var e = assertThrows(RuntimeException.class, engine::run);
+                assertEquals(program == outside ? "Array index out of bounds" : "Use of undimensioned array",
+                        e.getMessage());
+            }
+        }
+
+        //arrays that are never dimensioned or are used with the wrong number of indices are caught when loading
+        f = createFile("PRINT a(0)\n");
+        var never = new Parser(new Lexer().lex(f.getName())).parse();
+        var e = assertThrows(RuntimeException.class, () -> new TypeChecker().check(never));
+        assertEquals("Array a is never dimensioned", e.getMessage());
+        f = createFile("DIM a(2)\na(0, 1) = 3\n");
+        var rank = new Parser(new Lexer().lex(f.getName())).parse();
+        e = assertThrows(RuntimeException.class, () -> new BytecodeCompiler().compile(rank));
+        assertEquals("Array a has 1 dimensions", e.getMessage());
+        f = createFile("DIM a(2.5)\n");
+        var size = new Parser(new Lexer().lex(f.getName())).parse();
+        e = assertThrows(RuntimeException.class, () -> new Interpreter(size));
+        assertEquals("Array sizes must be integers", e.getMessage());
+    }
+
+    @Test
+    public void testSlotResolver() throws Exception {
+        File f = createFile("x = 3\nx$ = left$(\"three\", 2)\ny = x + 2\nPRINT x, y, x$");
+        var t = new Parser(new Lexer().lex(f.getName())).parse();
+        var names = new SlotResolver().resolve(t);
+
+        //every distinct name gets its own slot, in the order they first show up
+        assertEquals(3, names.length);
+        assertEquals("x$", names[1]);
+
+        //every use of a variable shares the slot of its name
+        var print = (PrintNode) t.getList().get(3);
+        assertEquals(0, ((VariableNode) print.getList().get(0)).getSlot());
+        assertEquals(2, ((VariableNode) print.getList().get(1)).getSlot());
+        assertEquals(1, ((VariableNode) print.getList().get(2)).getSlot());
+    }
+
+    @Test
+    public void testLinker() throws Exception {
+        File f = createFile("FOR i = 0 TO 3\nGOSUB show\nNEXT\nEND\nshow: PRINT i");
+        var t = new Parser(new Lexer().lex(f.getName())).parse();
+        new Linker().link(t);
+
+        //FOR and NEXT point at each other, GOSUB points at its label and statements point at the one after them
+        var loop = (ForNode) t.getList().get(0);
+        assertSame(t.getList().get(2), loop.getClosingNext());
+        assertSame(loop, loop.getClosingNext().getLoop());
+        assertSame(t.getList().get(4), ((GosubNode) t.getList().get(1)).getTarget());
+        assertSame(t.getList().get(3), loop.getClosingNext().next());
+
+        //A missing label is caught before the program runs
+        f = createFile("PRINT x\nGOSUB nowhere");
+        var missing = new Parser(new Lexer().lex(f.getName())).parse();
+        try {
+            new Linker().link(missing);
+            fail("GOSUB to a missing label should not link");
+        } catch(RuntimeException e) {
+            assertEquals("Label nowhere does not exist", e.getMessage());
+        }
+
+        //The label closing a WHILE can't carry a statement, no engine would ever run it
+        f = createFile("x = 0\nWHILE x < 3 e\nx = x + 1\ne: PRINT x\nEND");
+        var closing = new Parser(new Lexer().lex(f.getName())).parse();
+        var e = assertThrows(RuntimeException.class, () -> new Linker().link(closing));
+        assertEquals("Label e closes a WHILE and can't have a statement", e.getMessage());
+        var engine = assertThrows(RuntimeException.class, () -> new VirtualMachine(closing));
+        assertEquals(e.getMessage(), engine.getMessage());
+    }
+
+    @Test
+    public void testVirtualMachine() throws Exception {
+        File f = createFile("FOR i = 1 TO 15\n" + //FizzBuzz again, the VM has to print exactly what the Interpreter does
+                "IF 3*(i/3) > i-1 THEN fizz\n" +
+                "IF 5*(i/5) > i-1 THEN buzz\n" +
+                "NEXT\n" +
+                "END\n" +
+                "fizz: PRINT \"Fizz\"\n" +
+                "RETURN\n" +
+                "buzz: PRINT \"Buzz\"\n" +
+                "RETURN");
+        var expected = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse()));
+        assertEquals(expected, runAndCapture(new VirtualMachine(new Parser(new Lexer().lex(f.getName())).parse())));
+
+        f = createFile("READ a%, b%, name$, count\n" +
+                "GOSUB sum\n" +
+                "short$ = left$(name$, 3)\n" +
+                "count = count * 2 - 1\n" +
+                "PRINT short$, total%, count\n" +
+                "END\n" +
+                "DATA 33.4, 84.2, \"Albany\", 21\n" +
+                "sum: total% = a% + b%");
+        expected = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse()));
+        assertEquals(expected, runAndCapture(new VirtualMachine(new Parser(new Lexer().lex(f.getName())).parse())));
+    }
+
+    @Test
+    public void testClosureEngine() throws Exception {
+        File f = createFile("FOR i = 1 TO 15\n" + //the closures have to print exactly what the Interpreter does
+                "IF 3*(i/3) > i-1 THEN fizz\n" +
+                "IF 5*(i/5) > i-1 THEN buzz\n" +
+                "NEXT\n" +
+                "END\n" +
+                "fizz: PRINT \"Fizz\"\n" +
+                "RETURN\n" +
+                "buzz: PRINT \"Buzz\"\n" +
+                "RETURN");
+        var expected = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse()));
+        assertEquals(expected, runAndCapture(new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse())));
+
+        f = createFile("READ a%, b%, c%, d%, e%, f%, g%\n" +
+                "GOSUB sum\n" +
+                "average% = average% / 7.0\n" +
+                "PRINT \"Class Average: \", average%\n" +
+                "END\n" +
+                "DATA 33.4, 84.2, 89.4, 83.6, 78.0, 94.02, 88.0\n" +
+                "sum: average% = ((a% + b%) + (c% + d%)) + ((e% + f%) + g%)\n" +
+                "RETURN");
+        expected = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse()));
+        assertEquals(expected, runAndCapture(new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse())));
+
+        f = createFile("READ a%, b%, name$, count\n" +
+                "GOSUB sum\n" +
+                "short$ = left$(name$, 3)\n" +
+                "count = count * 2 - 1\n" +
+                "PRINT short$, total%, count\n" +
+                "END\n" +
+                "DATA 33.4, 84.2, \"Albany\", 21\n" +
+                "sum: total% = a% + b%");
+        expected = runAndCapture(new Interpreter(new Parser(new Lexer().lex(f.getName())).parse()));
+        assertEquals(expected, runAndCapture(new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse())));
+
+        //Runtime errors still only happen when the line is reached
+        f = createFile("PRINT \"before\"\nRETURN\nEND");
+        var engine = new ClosureEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        var e = assertThrows(RuntimeException.class, () -> runAndCapture(engine));
+        assertEquals("RETURN without GOSUB", e.getMessage());
+    }
+
+    @Test
+    public void testHiddenClassEngine() throws Exception {
+        File f = createFile("FOR i = 1 TO 15\n" + //the compiled class has to print exactly what the Interpreter does
+                "IF 3*(i/3) > i-1 THEN fizz\n" +
+                "IF 5*(i/5) > i-1 THEN buzz\n" +
+                "NEXT\n" +
+                "END\n" +
+                "fizz: PRINT \"Fizz\"\n" +
+                "RETURN\n" +
+                "buzz: PRINT \"Buzz\"\n" +
+                "RETURN");
+        var engine = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        assertTrue(engine.isCompiled());
+        assertEquals("Fizz\r\nBuzz\r\nFizz\r\nFizz\r\nBuzz\r\nFizz\r\n", runAndCapture(engine));
+
+        f = createFile("READ a%, b%, c%, d%, e%, f%, g%\n" +
+                "GOSUB sum\n" +
+                "average% = average% / 7.0\n" +
+                "PRINT \"Class Average: \", average%\n" +
+                "END\n" +
+                "DATA 33.4, 84.2, 89.4, 83.6, 78.0, 94.02, 88.0\n" +
+                "sum: average% = ((a% + b%) + (c% + d%)) + ((e% + f%) + g%)\n" +
+                "RETURN");
+        engine = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        assertTrue(engine.isCompiled());
+        assertEquals("Class Average: \r\n78.659996\r\n", runAndCapture(engine));
+
+        //A label whose statement is a RETURN can't be a method, the Interpreter runs that program instead
+        f = createFile("GOSUB back\n" +
+                "PRINT \"after\"\n" +
+                "END\n" +
+                "back: RETURN\n");
+        engine = new HiddenClassEngine(new Parser(new Lexer().lex(f.getName())).parse());
+        assertFalse(engine.isCompiled());
+    }
+
+    @Test
+    public void testJarCompiler() throws Exception {
+        File f = createFile("FOR i = 1 TO 15\n" +
+                "IF 3*(i/3) > i-1 THEN fizz\n" +
+                "IF 5*(i/5) > i-1 THEN buzz\n" +
+                "NEXT\n" +
+                "END\n" +
+                "fizz: PRINT \"Fizz\"\n" +
+                "RETURN\n" +
+                "buzz: PRINT \"Buzz\"\n" +
+                "RETURN");
+        var jar = java.nio.file.Files.createTempDirectory("jar").resolve("fizzbuzz.jar");
+        new JarCompiler().compile(new Parser(new Lexer().lex(f.getName())).parse(), jar);
+
+        //Loaded without the interpreter's classes, the jar has to run the program on its own
+        try(var loader = new java.net.URLClassLoader(new java.net.URL[] {jar.toUri().toURL()},
+                ClassLoader.getPlatformClassLoader())) {
+            var main = loader.loadClass(JarCompiler.MAIN_CLASS).getMethod("main", String[].class);
+            assertEquals("Fizz\r\nBuzz\r\nFizz\r\nFizz\r\nBuzz\r\nFizz\r\n", runAndCapture(() -> {
+                try {
+                    main.invoke(null, (Object) new String[0]);
+                } catch(ReflectiveOperationException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+
+        //the jar reads all its INPUT through one buffer and reports a bad value the way BufferedInput does
+        f = createFile("INPUT a\nINPUT b%\nPRINT a, b%\nINPUT c\n");
+        new JarCompiler().compile(new Parser(new Lexer().lex(f.getName())).parse(), jar);
+        var printed = new ByteArrayOutputStream();
+        var console = System.out;
+        var keyboard = System.in;
+        System.setOut(new PrintStream(printed));
+        System.setIn(new ByteArrayInputStream("7\n2.5\n\nx".getBytes()));
+        try(var loader = new java.net.URLClassLoader(new java.net.URL[] {jar.toUri().toURL()},
+                ClassLoader.getPlatformClassLoader())) {
+            var main = loader.loadClass(JarCompiler.MAIN_CLASS).getMethod("main", String[].class);
+            var e = assertThrows(java.lang.reflect.InvocationTargetException.class,
+                    () -> main.invoke(null, (Object) new String[0]));
+            assertEquals("Expected input int, got \"x\" on input line 4", e.getCause().getMessage());
+        } finally {
+            System.setOut(console);
+            System.setIn(keyboard);
+        }
+        assertEquals("7\r\n2.5\r\n", printed.toString());
+    }
+
+    @Test
+    public void testConstantFolder() throws Exception {
+        File f = createFile("c = 5 * (212 - 32) / 9\n" +
+                "big = 2147483647 + 1\n" +
+                "zero = 7 / 0\n" +
+                "x = c * 1 + 0\n" +
+                "f% = 2.5 * 2.0 - 0.0\n" +
+                "g% = f% + 0.0\n" +
+                "h% = f% * 1\n" +
+                "IF 3 * 4 > 2 + x THEN lbl\n" +
+                "END\n" +
+                "lbl: PRINT c");
+        var parse = new Parser(new Lexer().lex(f.getName())).parse();
+        new ConstantFolder().fold(parse);
+        var list = parse.getList();
+
+        //Literal arithmetic folds with int semantics, overflow and all, but dividing by zero is left to fail at runtime
+        assertEquals("c EQUALS 100", list.get(0).toString());
+        assertEquals("big EQUALS -2147483648", list.get(1).toString());
+        assertTrue(((AssignmentNode) list.get(2)).getExpression() instanceof MathOpNode);
+
+        //Identities go only when the literal matches the variable's type, float zeros are only dropped when subtracted
+        assertEquals("x EQUALS c", list.get(3).toString());
+        assertEquals("f% EQUALS 5.0", list.get(4).toString());
+        assertTrue(((AssignmentNode) list.get(5)).getExpression() instanceof MathOpNode);
+        assertTrue(((AssignmentNode) list.get(6)).getExpression() instanceof MathOpNode);
+        assertEquals("12 GREATERTHAN Parser.Node.Parser.Node.MathOpNode(ADD, 2, x)",
+                ((IfNode) list.get(7)).getCondition().toString());
+    }
+
+    @Test
+    public void testTypeChecker() throws Exception {
+        File f = createFile("x% = 1.5 * x%\n" +
+                "IF random() < val(\"3\") THEN lbl\n" +
+                "END\n" +
+                "lbl: PRINT x%");
+        var parse = new Parser(new Lexer().lex(f.getName())).parse();
+        new TypeChecker().check(parse);
+        var list = parse.getList();
+
+        var math = (MathOpNode) ((AssignmentNode) list.get(0)).getExpression();
+        assertEquals(Type.FLOAT, math.getType());
+        assertEquals(Type.FLOAT, math.getLeft().getType());
+        assertEquals(Type.FLOAT, math.getRight().getType());
+        var condition = ((IfNode) list.get(1)).getCondition();
+        assertEquals(Type.INT, condition.getLeft().getType());
+        assertEquals(Type.STRING, ((FunctionNode) condition.getRight()).getParameters().get(0).getType());
+
+        //num$ converts whichever kind of number its parameter is
+        var intNum = new FunctionNode("num$", new LinkedList<>(List.of(new IntegerNode(4))));
+        var floatNum = new FunctionNode("num$", new LinkedList<>(List.of(new VariableNode("x%"))));
+        new TypeChecker().check(new StatementListNode(new LinkedList<>(List.of(
+                new AssignmentNode(new VariableNode("s$"), intNum),
+                new AssignmentNode(new VariableNode("t$"), floatNum)))));
+        assertEquals(Type.INT, intNum.getParameters().get(0).getType());
+        assertEquals(Type.FLOAT, floatNum.getParameters().get(0).getType());
+
+        //every built-in the engines run gets through the checker
+        f = createFile("s$ = right$(\"testing\", 4)\n" +
+                "t$ = left$(s$, 2)\n" +
+                "PRINT s$, t$\n");
+        for(Engine engine : engines(f)) {
+            assertEquals("ting\r\nti\r\n", runAndCapture(engine));
+        }
+
+        //Type errors come up when the program is loaded, even in lines that would never run
+        f = createFile("END\n" +
+                "y% = 2 + 3");
+        var parsed = new Parser(new Lexer().lex(f.getName())).parse();
+        var e = assertThrows(RuntimeException.class, () -> new Interpreter(parsed));
+        assertEquals("Invalid float variable assignment", e.getMessage());
+        f = createFile("FOR i% = 1.0 TO 5\n" +
+                "NEXT");
+        var loop = new Parser(new Lexer().lex(f.getName())).parse();
+        e = assertThrows(RuntimeException.class, () -> new BytecodeCompiler().compile(loop));
+        assertEquals("FOR variable must be an integer", e.getMessage());
+    }
+
+    @Test
+    public void testProgramCache() throws Exception {
+        File f = createFile("READ a%, b%, name$, count\n" +
+                "GOSUB sum\n" +
+                "PRINT name$, total%, count\n" +
+                "END\n" +
+                "DATA 33.4, 84.2, \"Albany\", 21\n" +
+                "sum: total% = a% + b%");
+        var directory = java.nio.file.Files.createTempDirectory("cache");
+        var cache = new ProgramCache(directory);
+        String key = cache.key(f.toPath());
+        assertNull(cache.load(key));
+
+        //A cached program runs exactly like a freshly compiled one
+        var program = new BytecodeCompiler().compile(new Parser(new Lexer().lex(f.getName())).parse());
+        cache.store(key, program, "a warning\n");
+        var cached = cache.load(key);
+        assertEquals("a warning\n", cached.warnings());
+        assertEquals(program.toString(), cached.program().toString());
+        assertEquals(runAndCapture(new VirtualMachine(program)), runAndCapture(new VirtualMachine(cached.program())));
+
+        //Changing the source changes the key, and a damaged file is just a miss
+        f = createFile("PRINT x");
+        assertNotEquals(key, cache.key(f.toPath()));
+        java.nio.file.Files.write(directory.resolve(key + ".bbc"), new byte[] {1, 2, 3});
+        assertNull(cache.load(key));
+    }
+
 
     public File createFile(String fileContent) throws IOException {
         File f = new File("testData.txt");
@@ -322,4 +1241,45 @@ public class UnitTests {
         return f;
     }
 
+    //Every engine, each running a parse of the program of its own: the Interpreter walking the tree, the Interpreter
+    //compiling everything into closures straight away, the ClosureEngine, the HiddenClassEngine and the VM
+    private List<Engine> engines(File program) throws Exception {
+        return engines(program, Interpreter.MAX_DEPTH, BufferedInput::new, () -> null);
+    }
+
+    //The same with every engine getting its own input and DATA from the suppliers
+    private List<Engine> engines(File program, int maxDepth, Supplier<InputSource> input,
+                                 Supplier<DataSource> moreData) throws Exception {
+        return List.of(
+                new Interpreter(parse(program), Integer.MAX_VALUE, maxDepth, new BufferedOutput(), input.get(),
+                        moreData.get()),
+                new Interpreter(parse(program), 1, maxDepth, new BufferedOutput(), input.get(), moreData.get()),
+                new ClosureEngine(parse(program), maxDepth, new BufferedOutput(), input.get(), moreData.get()),
+                new HiddenClassEngine(parse(program), maxDepth, new BufferedOutput(), input.get(), moreData.get()),
+                new VirtualMachine(new BytecodeCompiler().compile(parse(program)), maxDepth, new BufferedOutput(),
+                        input.get(), moreData.get()));
+    }
+
+    private StatementListNode parse(File program) throws Exception {
+        return new Parser(new Lexer().lex(program.getName())).parse();
+    }
+
+    //What the expression of the assignment turned into while it ran
+    private String tree(Interpreter engine, Node assignment) {
+        return engine.describeTree(((AssignmentNode) assignment).getExpression());
+    }
+
+    //Runs the engine and returns everything it printed
+    public String runAndCapture(Engine engine) {
+        var printedStream = new ByteArrayOutputStream();
+        var console = System.out;
+        System.setOut(new PrintStream(printedStream));
+        try {
+            engine.run();
+        } finally {
+            System.setOut(console);
+        }
+        return printedStream.toString();
+    }
+
 }